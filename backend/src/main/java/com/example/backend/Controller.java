@@ -2,19 +2,38 @@
 package com.example.backend;
 
 // Import required Java and Spring classes
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 // Import model classes
 import com.example.backend.model.*;
 // Import service classes
 import com.example.backend.services.*;
+// Import index types
+import com.example.backend.type.InvertedIndexTrie;
+import com.example.backend.type.Postings;
 
 // Spring REST Controller class
 @RestController
 public class Controller {
+    // Most typos tolerated by fuzzy autocomplete, beyond which almost every word would match
+    private static final int MAX_AUTOCOMPLETE_EDITS = 2;
+    // Shortest prefixes allowed one and two typos; a prefix no longer than its edits would match from the root
+    private static final int MIN_PREFIX_FOR_ONE_EDIT = 3;
+    private static final int MIN_PREFIX_FOR_TWO_EDITS = 6;
+    // Most "did you mean" corrections a search may ask for
+    private static final int MAX_SUGGESTIONS = 20;
+
     // Service instances
-    private static final Search search = new Search();
+    private static final SearchIndexReloader searchIndex = new SearchIndexReloader("./data");
     private static final SpellCheck spellCheck = new SpellCheck();
     private static final SearchFrequency searchFrequency = new SearchFrequency("./data");
     private static final FrequencyCounter frequencyCounter = new FrequencyCounter();
@@ -24,32 +43,107 @@ public class Controller {
     // Initialize services after construction
     @PostConstruct
     public void init() {
-        search.buildTrie();
-        spellCheck.buildDictionary();
+        // Stamp the files before reading anything, so changes made during the build make saved state stale
+        List<String> sources = Search.sourceStamps("./data");
+        // Services whose saved state matches the files start from it; the rest read every CSV once
+        List<IngestConsumer> consumers = new ArrayList<>();
+        for (IngestConsumer consumer : List.of(spellCheck, dv, frequencyCounter)) {
+            if (!consumer.loadState("./data", sources)) {
+                consumers.add(consumer);
+            }
+        }
+        Search built = null;
+        if (!searchIndex.loadSegment(sources)) {
+            built = new Search();
+            consumers.add(built);
+        }
+
+        if (!consumers.isEmpty()) {
+            IngestPipeline.Result result = IngestPipeline.run("./data", consumers);
+            for (IngestConsumer consumer : consumers) {
+                // Only state built from every file is saved, otherwise the next start would take it as current
+                if (consumer != built && result.clean(consumer)) {
+                    consumer.saveState("./data", sources);
+                }
+            }
+            if (built != null) {
+                // A build whose complete() failed is not frozen, so keep the empty index rather than serve it
+                if (result.succeeded(built)) {
+                    // Serve a build that skipped a bad file, but do not save it as a segment
+                    searchIndex.publish(built, result.clean(built) ? sources : null);
+                } else {
+                    System.err.println("Search index build failed, search stays empty until the data changes.");
+                }
+            }
+        }
+
+        // Revalidate changed files in the background whenever the watcher sees the data change
+        searchIndex.onChange(() -> dv.submitRevalidation("./data"));
+        searchIndex.watch();
         searchFrequency.init();
-        dv.init("./data");
+    }
+
+    // Write out queued search history before the application stops
+    @PreDestroy
+    public void shutdown() {
+        searchFrequency.close();
     }
 
     // Endpoint for autocomplete suggestions
     @GetMapping("/auto_complete")
-    public AutoComplete autoComplete(@RequestParam(value = "q", defaultValue = "") String query) {
-        List<String> list = search.invertedIndex.autocomplete(query);
+    public AutoComplete autoComplete(@RequestParam(value = "q", defaultValue = "") String query,
+            @RequestParam(value = "limit", defaultValue = "0") int limit,
+            @RequestParam(value = "fuzzy", defaultValue = "0") int fuzzy) {
+        Search search = searchIndex.get();
+        // Tolerate up to fuzzy typos in the prefix, otherwise return the top ranked or every completion
+        List<String> list;
+        if (fuzzy > 0) {
+            int edits = Math.min(fuzzy, maxAutocompleteEdits(query.length()));
+            // Matched nodes contribute their precomputed lists, so a larger limit would walk whole subtrees
+            int capped = limit > 0
+                    ? Math.min(limit, InvertedIndexTrie.DEFAULT_TOP_COMPLETIONS)
+                    : InvertedIndexTrie.DEFAULT_TOP_COMPLETIONS;
+            list = search.invertedIndex.fuzzyAutocomplete(query, edits, capped);
+        } else if (limit > 0) {
+            // Larger limits would rank the whole subtree on every keystroke, so cap them at the precomputed lists
+            int capped = Math.min(limit, InvertedIndexTrie.DEFAULT_TOP_COMPLETIONS);
+            list = search.invertedIndex.autocomplete(query, capped);
+        } else {
+            list = search.invertedIndex.autocomplete(query);
+        }
         System.out.println(list);
         return new AutoComplete(list);
     }
 
+    // Helper method to get the most typos fuzzy autocomplete tolerates for a prefix of a given length
+    private static int maxAutocompleteEdits(int prefixLength) {
+        if (prefixLength < MIN_PREFIX_FOR_ONE_EDIT) {
+            return 0;
+        }
+        return prefixLength < MIN_PREFIX_FOR_TWO_EDITS ? 1 : MAX_AUTOCOMPLETE_EDITS;
+    }
+
     // Endpoint for storage size options
     @GetMapping("/storage_list")
     public StorageList storageList(@RequestParam(value = "q", defaultValue = "") String query) {
-        List<Object> list = Arrays.asList(search.storageSizes.toArray());
+        List<Object> list = Arrays.asList(searchIndex.get().storageSizes.toArray());
         System.out.println(list);
         return new StorageList(list);
     }
 
     // Endpoint for search history
     @GetMapping("/search_history")
-    public SearchHistory searchHistory() {
-        return new SearchHistory(searchFrequency.getSearchHistory());
+    public SearchHistory searchHistory(@RequestParam(value = "limit", defaultValue = "0") int limit) {
+        // With a limit, answer from the heavy hitters summary instead of sorting the whole history
+        return new SearchHistory(limit > 0
+                ? searchFrequency.getTopSearches(limit)
+                : searchFrequency.getSearchHistory());
+    }
+
+    // Endpoint for terms searched unusually often in the last hour
+    @GetMapping("/trending")
+    public Trending trending(@RequestParam(value = "limit", defaultValue = "10") int limit) {
+        return new Trending(searchFrequency.getTrending(limit));
     }
 
     // Endpoint for search term frequency
@@ -60,8 +154,10 @@ public class Controller {
 
     // Endpoint for word frequency analysis
     @GetMapping("/frequency_counter")
-    public WordFrequency wordFrequency() {
-        return new WordFrequency(frequencyCounter.init("./data"));
+    public WordFrequency wordFrequency(@RequestParam(value = "limit", defaultValue = "0") int limit) {
+        // Re-count only the CSV files that changed since the last call
+        List<Map.Entry<String, Integer>> list = frequencyCounter.refresh("./data");
+        return new WordFrequency(limit > 0 && limit < list.size() ? list.subList(0, limit) : list);
     }
 
     // Endpoint for email validation
@@ -70,22 +166,40 @@ public class Controller {
         return new PatternMatchModel(patternMatch.emailCheck(email));
     }
 
-    // Endpoint for data validation results
+    // Endpoint for data validation results, as of the last finished validation of each file
     @GetMapping("/validate_data")
     public ValidateData validateData() {
-        System.out.println("Data");
-        dv.printInvalidLines();
-        return new ValidateData(dv.invalidLinesByFile);
+        return new ValidateData(dv.getInvalidLinesByFile());
+    }
+
+    // Endpoint to revalidate the files changed since their last validation, answering before the job runs
+    @PostMapping("/validate_data/jobs")
+    public ResponseEntity<ValidationJobStatus> startValidation() {
+        ValidationJob job = dv.submitRevalidation("./data");
+        return ResponseEntity.accepted().body(job.status());
+    }
+
+    // Endpoint for the progress of a validation job
+    @GetMapping("/validate_data/jobs/{id}")
+    public ResponseEntity<ValidationJobStatus> validationJob(@PathVariable("id") String id) {
+        ValidationJob job = dv.getJob(id);
+        return job == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(job.status());
     }
 
     // Main search endpoint with multiple filters
     @GetMapping("/search")
-    public SearchQuery search(
+    public void search(
             @RequestParam(value = "q", defaultValue = "") String query,
             @RequestParam(value = "minPrice", defaultValue = "") String minPrice,
             @RequestParam(value = "maxPrice", defaultValue = "") String maxPrice,
             @RequestParam(value = "minStorage", defaultValue = "") String minStorage,
-            @RequestParam(value = "maxStorage", defaultValue = "") String maxStorage) {
+            @RequestParam(value = "maxStorage", defaultValue = "") String maxStorage,
+            @RequestParam(value = "limit", defaultValue = "0") int limit,
+            @RequestParam(value = "suggestions", defaultValue = "5") int suggestionLimit,
+            HttpServletResponse response) throws IOException {
+
+        // Use one snapshot for the whole request even if a reload swaps it meanwhile
+        Search search = searchIndex.get();
 
         // Parse numeric parameters with defaults
         double minPriceVal = parseDoubleWithDefault(minPrice, 0);
@@ -94,37 +208,77 @@ public class Controller {
         double maxStorageVal = parseDoubleWithDefault(maxStorage, Double.MAX_VALUE);
 
         // Initialize search results
-        Map<String, HashSet<Integer>> searchResultIndex = new HashMap<>();
+        Postings searchResultIndex = Postings.EMPTY;
         String string = "";
+        List<String> suggestions = List.of();
 
         // Process text query
         if (!query.isEmpty()) {
             searchResultIndex = search.invertedIndex.search(query);
             searchFrequency.addHistory(query);
-            System.out.println(searchResultIndex.entrySet().isEmpty());
-            if (searchResultIndex.entrySet().isEmpty()) {
-                string = spellCheck.findClosestWord(query);
+            // Fall back to word, boolean and phrase matching when no cell matches exactly
+            if (searchResultIndex.isEmpty()) {
+                searchResultIndex = search.queryEngine.evaluate(query);
+            }
+            System.out.println(searchResultIndex.isEmpty());
+            if (searchResultIndex.isEmpty()) {
+                // Look the corrections up once; the closest one comes first and doubles as the spell check
+                int capped = Math.max(0, Math.min(suggestionLimit, MAX_SUGGESTIONS));
+                List<String> corrections = spellCheck.suggest(query, Math.max(1, capped));
+                string = corrections.isEmpty() ? null : corrections.get(0);
+                suggestions = corrections.subList(0, Math.min(capped, corrections.size()));
             }
         }
 
         // Process price range filter
         if (minPriceVal > 0 || maxPriceVal < Double.MAX_VALUE) {
-            Map<String, HashSet<Integer>> priceResults = search.invertedIndexKeyMapped.searchRange(
-                    "price per month", minPriceVal, maxPriceVal);
-            mergeResults(searchResultIndex, priceResults);
+            Postings priceResults = search.priceIndex.range(minPriceVal, maxPriceVal);
+            searchResultIndex = Postings.union(searchResultIndex, priceResults);
         }
 
         // Process storage range filter
         if (minStorageVal > 0 || maxStorageVal < Double.MAX_VALUE) {
-            Map<String, HashSet<Integer>> storageResults = search.invertedIndexKeyMapped.searchRange(
-                    "capacity", minStorageVal, maxStorageVal);
-            mergeResults(searchResultIndex, storageResults);
+            Postings storageResults = search.capacityIndex.range(minStorageVal, maxStorageVal);
+            searchResultIndex = Postings.union(searchResultIndex, storageResults);
         }
 
-        // Convert results to JSON format
-        List<Map<String, Object>> list = search.convertToJson(searchResultIndex);
+        // With a limit, return only the best BM25 matches for the query words, best first
+        int[] rows = limit > 0
+                ? search.tokenIndex.rankBm25(search.queryEngine.positiveTerms(query), searchResultIndex, limit)
+                : searchResultIndex.toArray();
+
+        // Stream the pre-encoded rows with the SearchQuery model fields, plus the suggestions
+        writeSearchResponse(search, rows, string, suggestions, response);
+    }
+
+    // Helper method to write {"data": [...], "spellCheck": ..., "suggestions": [...]} straight to the response
+    private void writeSearchResponse(Search search, int[] results, String spellCheck, List<String> suggestions,
+            HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        OutputStream out = response.getOutputStream();
+        out.write("{\"data\":".getBytes(StandardCharsets.UTF_8));
+        search.rowStore.writeArray(results, out);
+        out.write(",\"spellCheck\":".getBytes(StandardCharsets.UTF_8));
+        writeJsonString(spellCheck, out);
+        out.write(",\"suggestions\":[".getBytes(StandardCharsets.UTF_8));
+        for (int i = 0; i < suggestions.size(); i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            writeJsonString(suggestions.get(i), out);
+        }
+        out.write("]}".getBytes(StandardCharsets.UTF_8));
+    }
 
-        return new SearchQuery(list, string);
+    // Helper method to write a quoted, escaped JSON string, or null
+    private void writeJsonString(String value, OutputStream out) throws IOException {
+        if (value == null) {
+            out.write("null".getBytes(StandardCharsets.UTF_8));
+        } else {
+            out.write('"');
+            out.write(JsonStringEncoder.getInstance().quoteAsUTF8(value));
+            out.write('"');
+        }
     }
 
     // Helper method to safely parse double values
@@ -139,13 +293,4 @@ public class Controller {
             return defaultValue;
         }
     }
-
-    // Helper method to merge search result maps
-    private void mergeResults(Map<String, HashSet<Integer>> mainResults,
-            Map<String, HashSet<Integer>> newResults) {
-        newResults.forEach((key, value) -> mainResults.merge(key, value, (oldSet, newSet) -> {
-            oldSet.addAll(newSet);
-            return oldSet;
-        }));
-    }
 }
\ No newline at end of file
@@ -0,0 +1,6 @@
+package com.example.backend.model;
+
+import java.util.List;
+
+public record Trending(List<TrendingTerm> list) {
+}
@@ -0,0 +1,4 @@
+package com.example.backend.model;
+
+public record TrendingTerm(String term, int lastMinute, int lastHour, int lastDay, double growth) {
+}
@@ -0,0 +1,5 @@
+package com.example.backend.model;
+
+public record ValidationJobStatus(String id, String state, int filesChecked, int filesRevalidated,
+        int filesFailed, int filesRemoved, long submittedAt, long startedAt, long finishedAt, String error) {
+}
@@ -1,29 +1,94 @@
 // Define the package for the data validation service
 package com.example.backend.services;
 
+// Import the memory mapped CSV table
+import com.example.backend.type.CsvTable;
+// Import required utility classes
+import com.example.backend.utils.FileUtils;
+import com.example.backend.utils.SegmentIO;
+
 // Import required Java classes
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.*;
-// Import utility class for file operations
-import com.example.backend.utils.FileUtils;
 // Import Java NIO classes for file operations
 import java.nio.file.*;
 
 // Class for validating data in CSV files
-public class DataValidation {
+public class DataValidation implements IngestConsumer {
 
     // Regex pattern for validating URLs
-    private final String URL_PATTERN = "^https?://[\\w.-]+(/\\S*)?$";
+    private static final Pattern URL_PATTERN = Pattern.compile("^https?://[\\w.-]+(/\\S*)?$");
     // Regex pattern for validating storage capacity
-    private final String CAPACITY_PATTERN = "^\\d+\\s?(GB|TB)$";
+    private static final Pattern CAPACITY_PATTERN = Pattern.compile("^\\d+\\s?(GB|TB)$");
     // Regex pattern for validating monthly prices
-    private final String PRICE_PER_MONTH_PATTERN = "^(0|[1-9]\\d*)(\\.\\d{2})?$";
+    private static final Pattern PRICE_PER_MONTH_PATTERN = Pattern.compile("^(0|[1-9]\\d*)(\\.\\d{2})?$");
     // Regex pattern for validating annual prices
-    private final String PRICE_PER_ANNUM_PATTERN = "^(0|[1-9]\\d*)(\\.\\d{2})?$";
+    private static final Pattern PRICE_PER_ANNUM_PATTERN = Pattern.compile("^(0|[1-9]\\d*)(\\.\\d{2})?$");
+    // Patterns used to clean fields before validation
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern DOLLAR = Pattern.compile("\\$");
+
+    // Validated columns, looked up by header name, with the positions used when a file has no such header
+    private static final String URL_COLUMN = "url";
+    private static final String CAPACITY_COLUMN = "capacity";
+    private static final String PRICE_PER_MONTH_COLUMN = "price per month";
+    private static final String PRICE_PER_ANNUM_COLUMN = "price per annum";
+    private static final int DEFAULT_URL_INDEX = 8;
+    private static final int DEFAULT_CAPACITY_INDEX = 4;
+    private static final int DEFAULT_PRICE_PER_ANNUM_INDEX = 2;
+    private static final int DEFAULT_PRICE_PER_MONTH_INDEX = 3;
+
+    // File name of the saved results inside the data directory, with their marker and format version
+    public static final String STATE_FILE = "validation.seg";
+    private static final int STATE_MAGIC = 0x56414c44;
+    private static final int STATE_VERSION = 1;
+
+    // Number of finished jobs kept for status requests
+    private static final int MAX_JOBS = 100;
+
+    // Class holding the result of validating one file, with the hash of the content it was computed from
+    private static class FileValidation {
+        final String fileName;
+        final String contentHash;
+        final List<String> invalidLines;
+
+        FileValidation(String fileName, String contentHash, List<String> invalidLines) {
+            this.fileName = fileName;
+            this.contentHash = contentHash;
+            this.invalidLines = Collections.unmodifiableList(invalidLines);
+        }
+    }
 
-    // Map to store invalid lines grouped by filename
-    public Map<String, List<String>> invalidLinesByFile = new HashMap<>();
+    // Validation results per file, replaced whole so readers never see a half-validated file
+    private final Map<Path, FileValidation> results = new ConcurrentHashMap<>();
+    // Recent jobs by id, oldest dropped first
+    private final Map<String, ValidationJob> jobs = Collections.synchronizedMap(
+            new LinkedHashMap<String, ValidationJob>() {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, ValidationJob> eldest) {
+                    return size() > MAX_JOBS;
+                }
+            });
+    // Single background thread, so revalidations run one at a time and never on a request thread
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "data-validation");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Job submitted but not started yet, which later requests join instead of queueing another
+    private ValidationJob queuedJob;
+    // Files accepted from the ingest pipeline, validated together in complete()
+    private final List<ParsedFile> pending = new ArrayList<>();
+    // Flag set when complete() skipped a file, so its results are not saved as covering every file
+    private volatile boolean ingestIncomplete = false;
 
     // Main method to start validation
     public static void main(String[] args) {
@@ -31,6 +96,7 @@ public class DataValidation {
         DataValidation dv = new DataValidation();
         // Initialize validation with data directory
         dv.init("./backend/data");
+        dv.printInvalidLines();
     }
 
     // Method to initialize validation process
@@ -38,79 +104,263 @@ public class DataValidation {
         // Print initialization message
         System.out.println("Init Data Validation");
 
-        // Clear previous validation results
-        invalidLinesByFile.clear();
-        // Read and validate all files in directory
-        FileUtils.readFiles(directory, path -> {
-            validate(path.toString());
+        // Validate every file not validated yet, in parallel
+        revalidate(directory, new ValidationJob());
+    }
+
+    // Method to queue one file already read by the ingest pipeline, so the pipeline thread is not held up
+    @Override
+    public void accept(ParsedFile file) {
+        if (file.table() == null) {
+            System.out.println("File " + file.path() + " is too large to validate.");
+            return;
+        }
+        pending.add(file);
+    }
+
+    // Method to validate the accepted files in parallel once the pipeline has read them all
+    @Override
+    public void complete() {
+        pending.parallelStream().forEach(file -> {
+            try {
+                CsvTable table = file.table();
+                store(file.path(), hash(table.buffer()), validate(file.path().toString(), table));
+            } catch (RuntimeException e) {
+                // A bad file is skipped, the others are still validated
+                System.err.println("Failed to validate " + file.path() + ": " + e);
+                ingestIncomplete = true;
+            }
+        });
+        pending.clear();
+    }
+
+    // Method to restore the results saved from files with these stamps
+    @Override
+    public boolean loadState(String directory, List<String> sources) {
+        Path path = Paths.get(directory, STATE_FILE);
+        try {
+            ByteBuffer buffer = SegmentIO.mapCurrent(path, STATE_MAGIC, STATE_VERSION, sources);
+            if (buffer == null) {
+                return false;
+            }
+            int fileCount = buffer.getInt();
+            Map<Path, FileValidation> loaded = new HashMap<>();
+            for (int i = 0; i < fileCount; i++) {
+                Path file = Paths.get(SegmentIO.readString(buffer));
+                String fileName = SegmentIO.readString(buffer);
+                String contentHash = SegmentIO.readString(buffer);
+                List<String> invalidLines = new ArrayList<>();
+                for (int line = buffer.getInt(); line > 0; line--) {
+                    invalidLines.add(SegmentIO.readString(buffer));
+                }
+                loaded.put(file, new FileValidation(fileName, contentHash, invalidLines));
+            }
+            results.putAll(loaded);
+            System.out.println("Validation results loaded from " + path + " for " + fileCount + " files.");
+            return true;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Failed to load the validation results, revalidating: " + e.getMessage());
+            return false;
+        }
+    }
+
+    // Method to save the results with the content hash each was computed from
+    @Override
+    public void saveState(String directory, List<String> sources) {
+        if (ingestIncomplete) {
+            System.out.println("Validation results not saved, some files failed to validate.");
+            return;
+        }
+        SegmentIO.writeFile(Paths.get(directory, STATE_FILE), out -> {
+            SegmentIO.writeHeader(out, STATE_MAGIC, STATE_VERSION, sources);
+            // Copy first, since a revalidation may replace results while they are written
+            Map<Path, FileValidation> snapshot = new HashMap<>(results);
+            out.writeInt(snapshot.size());
+            for (Map.Entry<Path, FileValidation> entry : snapshot.entrySet()) {
+                SegmentIO.writeString(out, entry.getKey().toString());
+                SegmentIO.writeString(out, entry.getValue().fileName);
+                SegmentIO.writeString(out, entry.getValue().contentHash);
+                out.writeInt(entry.getValue().invalidLines.size());
+                for (String line : entry.getValue().invalidLines) {
+                    SegmentIO.writeString(out, line);
+                }
+            }
         });
     }
 
     // Method to validate a single file
     public void validate(String filePath) {
-        // Print current file being validated
-        System.out.println("Validating path: " + filePath);
-        // Extract filename from path
-        String fileName = Paths.get(filePath).getFileName().toString();
-        // List to store invalid lines for current file
-        List<String> fileInvalidLines = new ArrayList<>();
+        try {
+            Path path = Paths.get(filePath);
+            ByteBuffer bytes = CsvTable.map(path);
+            store(path, hash(bytes), validate(filePath, CsvTable.parse(bytes)));
+        } catch (IOException e) {
+            // Print error if file opening fails
+            System.err.println("Error reading the file: " + e.getMessage());
+        }
+    }
 
-        // Try-with-resources to read file
-        try (BufferedReader br = Files.newBufferedReader(Paths.get(filePath))) {
-            // Read and skip header line
-            String header = br.readLine();
-            // Check if file is empty
-            if (header == null) {
-                System.out.println("The file is empty.");
-                return;
+    // Method to queue a revalidation of the files added, changed or removed since they were last validated
+    public synchronized ValidationJob submitRevalidation(String directory) {
+        // A job that has not started yet will see the latest files anyway
+        if (queuedJob != null) {
+            return queuedJob;
+        }
+        ValidationJob job = new ValidationJob();
+        queuedJob = job;
+        jobs.put(job.id(), job);
+        executor.execute(() -> {
+            synchronized (this) {
+                queuedJob = null;
+            }
+            revalidate(directory, job);
+        });
+        return job;
+    }
+
+    // Method to get a recent job by id, or null if unknown
+    public ValidationJob getJob(String id) {
+        return jobs.get(id);
+    }
+
+    // Method to get the invalid lines of every file that has any, by file name
+    public Map<String, List<String>> getInvalidLinesByFile() {
+        Map<String, List<String>> invalidLinesByFile = new TreeMap<>();
+        for (FileValidation validation : results.values()) {
+            if (!validation.invalidLines.isEmpty()) {
+                invalidLinesByFile.put(validation.fileName, validation.invalidLines);
             }
+        }
+        return invalidLinesByFile;
+    }
 
-            // Initialize line counter (starting after header)
-            int lineNumber = 1;
-            String line;
-            // Read file line by line
-            while ((line = br.readLine()) != null) {
-                lineNumber++;
-                // Split line into fields
-                String[] fields = line.split(",", -1);
-                // Check if line has enough fields
-                if (fields.length < 8) {
-                    fileInvalidLines.add("Line " + lineNumber + ": Insufficient fields - " + line);
-                    continue;
+    // Helper method to revalidate, in parallel, only the files whose content hash changed, and drop deleted files
+    private void revalidate(String directory, ValidationJob job) {
+        job.start();
+        try {
+            List<Path> paths = new ArrayList<>();
+            FileUtils.readFiles(directory, paths::add);
+            Set<Path> present = new HashSet<>();
+            for (Path path : paths) {
+                present.add(key(path));
+            }
+
+            AtomicInteger revalidated = new AtomicInteger();
+            AtomicInteger failed = new AtomicInteger();
+            paths.parallelStream().forEach(path -> {
+                try {
+                    ByteBuffer bytes = CsvTable.map(path);
+                    String contentHash = hash(bytes);
+                    FileValidation cached = results.get(key(path));
+                    if (cached != null && cached.contentHash.equals(contentHash)) {
+                        return;
+                    }
+                    store(path, contentHash, validate(path.toString(), CsvTable.parse(bytes)));
+                    revalidated.incrementAndGet();
+                } catch (IOException e) {
+                    // Keep the previous result for a file that cannot be read right now
+                    System.err.println("Error reading the file: " + e.getMessage());
+                    failed.incrementAndGet();
+                } catch (RuntimeException e) {
+                    // A bad file keeps its previous result, the others are still validated
+                    System.err.println("Failed to validate " + path + ": " + e);
+                    failed.incrementAndGet();
                 }
+            });
 
-                // Extract and clean specific fields
-                String url = fields[7].trim();
-                String capacity = fields[4].trim().replaceAll("\\s+", " ");
-                String pricePerMonth = fields[2].trim().replaceAll("\\$", "");
-                String pricePerAnnum = fields[3].trim().replaceAll("\\$", "");
-
-                // Validate all required fields
-                boolean isValid = validateField(url, URL_PATTERN) &&
-                        validateField(capacity, CAPACITY_PATTERN) &&
-                        validateField(pricePerMonth, PRICE_PER_MONTH_PATTERN) &&
-                        validateField(pricePerAnnum, PRICE_PER_ANNUM_PATTERN);
-
-                // Add invalid lines to list
-                if (!isValid) {
-                    fileInvalidLines.add("Line " + lineNumber + ": " + line);
+            int removed = 0;
+            for (Iterator<Path> it = results.keySet().iterator(); it.hasNext();) {
+                if (!present.contains(it.next())) {
+                    it.remove();
+                    removed++;
                 }
             }
+            job.succeed(paths.size(), revalidated.get(), failed.get(), removed);
+            System.out.println("Data validation checked " + paths.size() + " files, revalidated "
+                    + revalidated.get() + ", failed " + failed.get() + ", removed " + removed + ".");
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            job.fail(e.toString());
+        }
+    }
+
+    // Helper method to cache a file's result under its normalized path
+    private void store(Path path, String contentHash, List<String> invalidLines) {
+        results.put(key(path), new FileValidation(path.getFileName().toString(), contentHash, invalidLines));
+    }
+
+    // Helper method to normalize a path so the same file always has the same key
+    private static Path key(Path path) {
+        return path.toAbsolutePath().normalize();
+    }
+
+    // Helper method to hash file content with SHA-256, reading the mapped bytes directly
+    private static String hash(ByteBuffer bytes) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(bytes.duplicate());
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to provide SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Method to validate the records of a parsed file, returning its invalid lines
+    private List<String> validate(String filePath, CsvTable table) {
+        // Print current file being validated
+        System.out.println("Validating path: " + filePath);
+
+        // Check if file is empty
+        if (table.rowCount() == 0) {
+            System.out.println("The file is empty.");
+            return new ArrayList<>();
+        }
+
+        // Find the validated columns from the header row
+        int urlIndex = columnIndex(table, URL_COLUMN, DEFAULT_URL_INDEX);
+        int capacityIndex = columnIndex(table, CAPACITY_COLUMN, DEFAULT_CAPACITY_INDEX);
+        int pricePerMonthIndex = columnIndex(table, PRICE_PER_MONTH_COLUMN, DEFAULT_PRICE_PER_MONTH_INDEX);
+        int pricePerAnnumIndex = columnIndex(table, PRICE_PER_ANNUM_COLUMN, DEFAULT_PRICE_PER_ANNUM_INDEX);
+        int requiredFields = Math.max(Math.max(urlIndex, capacityIndex),
+                Math.max(pricePerMonthIndex, pricePerAnnumIndex)) + 1;
 
-            // Store invalid lines for this file if any found
-            if (!fileInvalidLines.isEmpty()) {
-                invalidLinesByFile.put(fileName, fileInvalidLines);
+        // List to store invalid lines for current file
+        List<String> fileInvalidLines = new ArrayList<>();
+        // Check every record after the header; a quoted cell may span several lines of one record
+        for (int row = 1; row < table.rowCount(); row++) {
+            int lineNumber = table.lineNumber(row);
+            // Check if record has enough fields
+            if (table.fieldCount(row) < requiredFields) {
+                fileInvalidLines.add("Line " + lineNumber + ": Insufficient fields - " + table.rowText(row));
+                continue;
             }
 
-        } catch (IOException e) {
-            // Print error if file reading fails
-            System.err.println("Error reading the file: " + e.getMessage());
+            // Extract and clean specific fields
+            String url = table.field(row, urlIndex).trim();
+            String capacity = WHITESPACE.matcher(table.field(row, capacityIndex).trim()).replaceAll(" ");
+            String pricePerMonth = DOLLAR.matcher(table.field(row, pricePerMonthIndex).trim()).replaceAll("");
+            String pricePerAnnum = DOLLAR.matcher(table.field(row, pricePerAnnumIndex).trim()).replaceAll("");
+
+            // Validate all required fields
+            boolean isValid = validateField(url, URL_PATTERN) &&
+                    validateField(capacity, CAPACITY_PATTERN) &&
+                    validateField(pricePerMonth, PRICE_PER_MONTH_PATTERN) &&
+                    validateField(pricePerAnnum, PRICE_PER_ANNUM_PATTERN);
+
+            // Add invalid lines to list
+            if (!isValid) {
+                fileInvalidLines.add("Line " + lineNumber + ": " + table.rowText(row));
+            }
         }
+
+        return fileInvalidLines;
     }
 
     // Method to print all invalid lines found
     public void printInvalidLines() {
         System.out.println("\n=== Invalid Lines by File ===");
+        Map<String, List<String>> invalidLinesByFile = getInvalidLinesByFile();
         // Check if any invalid lines were found
         if (invalidLinesByFile.isEmpty()) {
             System.out.println("No invalid lines found.");
@@ -127,8 +377,18 @@ public class DataValidation {
         }
     }
 
-    // Helper method to validate a field against a regex pattern
-    private static boolean validateField(String field, String pattern) {
-        return Pattern.matches(pattern, field);
+    // Helper method to validate a field against a precompiled regex pattern
+    private static boolean validateField(String field, Pattern pattern) {
+        return pattern.matcher(field).matches();
+    }
+
+    // Helper method to find a column by its header name, ignoring case, or fall back to its usual position
+    private static int columnIndex(CsvTable table, String name, int defaultIndex) {
+        for (int column = 0; column < table.fieldCount(0); column++) {
+            if (table.field(0, column).trim().equalsIgnoreCase(name)) {
+                return column;
+            }
+        }
+        return defaultIndex;
     }
 }
\ No newline at end of file
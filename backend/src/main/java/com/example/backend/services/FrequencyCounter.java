@@ -1,57 +1,203 @@
 // Define the package for the frequency counter service
 package com.example.backend.services;
 
+// Import required utility classes
+import com.example.backend.type.WordCountMap;
+import com.example.backend.utils.FileUtils;
+import com.example.backend.utils.SegmentIO;
+
 // Import required Java classes
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
 import java.util.Map.Entry;
-import java.util.stream.Collectors;
-
-// Import utility class for file operations
-import com.example.backend.utils.FileUtils;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 // Class for counting word frequencies in files
-public class FrequencyCounter {
-
-    // Method to read words from a file and return as list
-    private List<String> readWordsFromFile(String filePath) {
-        // Initialize list to store words
-        List<String> words = new ArrayList<>();
-        // Try-with-resources to read file
-        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
-            String line;
-            // Read file line by line
-            while ((line = reader.readLine()) != null) {
-                // Split line into words using regex
-                String[] splitWords = line.toLowerCase().split("[^a-zA-Z0-9]+");
-                // Filter out empty strings and add to list
-                words.addAll(Arrays.stream(splitWords)
-                        .filter(word -> !word.isEmpty())
-                        .collect(Collectors.toList()));
+public class FrequencyCounter implements IngestConsumer {
+    // File name of the saved counts inside the data directory, with their marker and format version
+    public static final String STATE_FILE = "word-counts.seg";
+    private static final int STATE_MAGIC = 0x57524443;
+    private static final int STATE_VERSION = 1;
+    // Files at least this large are counted in parallel chunks instead of being read into one String
+    public static final long PARALLEL_THRESHOLD_BYTES = 16L << 20;
+    // Largest chunk a single fork-join task counts by itself
+    private static final long CHUNK_BYTES = 4L << 20;
+
+    // Task counting the words of a byte range of a file, splitting it between words until chunks are small
+    private static class ChunkCount extends RecursiveTask<WordCountMap> {
+        private static final long serialVersionUID = 1L;
+
+        private final FileChannel channel;
+        private final long start;
+        private final long end;
+
+        ChunkCount(FileChannel channel, long start, long end) {
+            this.channel = channel;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected WordCountMap compute() {
+            try {
+                if (end - start <= CHUNK_BYTES) {
+                    return countChunk(channel.map(FileChannel.MapMode.READ_ONLY, start, end - start));
+                }
+                // Split just after a byte that cannot be part of a word, so both halves count whole words only
+                long middle = nextWordBoundary(channel, start + (end - start) / 2, end);
+                if (middle >= end) {
+                    if (end - start > Integer.MAX_VALUE) {
+                        throw new IOException("No word boundary in the last " + (end - start) + " bytes to split at");
+                    }
+                    return countChunk(channel.map(FileChannel.MapMode.READ_ONLY, start, end - start));
+                }
+                ChunkCount left = new ChunkCount(channel, start, middle);
+                ChunkCount right = new ChunkCount(channel, middle, end);
+                left.fork();
+                // Each task fills its own map, and the two halves are merged once both are done
+                WordCountMap counts = right.compute();
+                WordCountMap leftCounts = left.join();
+                if (leftCounts.size() > counts.size()) {
+                    leftCounts.addAll(counts);
+                    return leftCounts;
+                }
+                counts.addAll(leftCounts);
+                return counts;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
             }
+        }
+    }
+
+    // Class holding the word counts of one file and the size and modification time they were counted at
+    private static class FileCounts {
+        final long size;
+        final long lastModified;
+        final WordCountMap counts;
+
+        FileCounts(long size, long lastModified, WordCountMap counts) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.counts = counts;
+        }
+    }
+
+    // Saved counts mapped at startup and not decoded yet, or null
+    private ByteBuffer savedState;
+    // Cached counts per file, so a refresh only re-reads files whose size or mtime changed
+    private final Map<Path, FileCounts> fileCounts = new HashMap<>();
+    // Counts over all cached files, kept up to date as files are replaced
+    private final WordCountMap totals = new WordCountMap(4096);
+    // Sorted view of the totals, rebuilt only when a file changed
+    private volatile List<Entry<String, Integer>> results = Collections.emptyList();
+
+    // Method to read a file and count its words
+    private WordCountMap countWordsInFile(String filePath) {
+        try {
+            return countWords(readContent(Path.of(filePath)));
         } catch (IOException e) {
             // Print error if file reading fails
             System.err.println("Failed to read file: " + filePath + ": " + e.getMessage());
         }
-        return words;
+        return new WordCountMap();
+    }
+
+    // Method to count the lowercase alphanumeric words of a text in one pass over its characters
+    private WordCountMap countWords(String text) {
+        WordCountMap counts = new WordCountMap();
+        // The current word is built in a reused buffer; the map only makes a String for words it has not seen
+        char[] word = new char[64];
+        int length = 0;
+        for (int i = 0, n = text.length(); i <= n; i++) {
+            char c = i < n ? text.charAt(i) : ' ';
+            if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || (c >= 'A' && c <= 'Z')) {
+                if (length == word.length) {
+                    word = Arrays.copyOf(word, length * 2);
+                }
+                // Lowercase ASCII letters by setting the case bit, digits already have it set
+                word[length++] = (char) (c | 0x20);
+            } else if (length > 0) {
+                counts.increment(word, 0, length);
+                length = 0;
+            }
+        }
+        return counts;
+    }
+
+    // Method to count the words of a large file on all cores, reading it through memory mapped chunks
+    public WordCountMap countWordsParallel(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return ForkJoinPool.commonPool().invoke(new ChunkCount(channel, 0, channel.size()));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    // Helper method to count the words of a mapped chunk or file, byte by byte
+    private static WordCountMap countChunk(ByteBuffer chunk) {
+        // Bytes of multi-byte UTF-8 characters are all 0x80 or above, so ASCII words can be found without decoding
+        WordCountMap counts = new WordCountMap();
+        byte[] word = new byte[64];
+        int length = 0;
+        for (int i = 0, n = chunk.limit(); i <= n; i++) {
+            byte b = i < n ? chunk.get(i) : (byte) ' ';
+            if (isWordByte(b)) {
+                if (length == word.length) {
+                    word = Arrays.copyOf(word, length * 2);
+                }
+                word[length++] = (byte) (b | 0x20);
+            } else if (length > 0) {
+                counts.increment(word, 0, length);
+                length = 0;
+            }
+        }
+        return counts;
+    }
+
+    // Helper method to find the offset just after the first non-word byte at or after position, or end if none
+    private static long nextWordBoundary(FileChannel channel, long position, long end) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        while (position < end) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (!isWordByte(buffer.get(i))) {
+                    return Math.min(position + i + 1, end);
+                }
+            }
+            position += read;
+        }
+        return end;
+    }
+
+    // Helper method to check whether a byte is an ASCII letter or digit, the only bytes words are made of
+    private static boolean isWordByte(byte b) {
+        return (b >= 'a' && b <= 'z') || (b >= '0' && b <= '9') || (b >= 'A' && b <= 'Z');
     }
 
-    // Method to build frequency map from word list
-    private Map<String, Integer> buildFrequencyMap(List<String> wordList) {
-        // Group words and count occurrences
-        return wordList.stream()
-                .collect(Collectors.groupingBy(
-                        word -> word,
-                        Collectors.summingInt(word -> 1)));
+    // Helper method to read a file as text, decoding leniently like the ingest pipeline
+    private static String readContent(Path path) throws IOException {
+        return new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
     }
 
-    // Method to sort frequency map entries by count in descending order
-    private List<Entry<String, Integer>> getSortedFrequencies(Map<String, Integer> wordFrequency) {
-        return wordFrequency.entrySet().stream()
-                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
-                .collect(Collectors.toList());
+    // Method to sort word counts by count in descending order
+    private List<Entry<String, Integer>> getSortedFrequencies(WordCountMap wordFrequency) {
+        List<Entry<String, Integer>> entries = new ArrayList<>(wordFrequency.size());
+        wordFrequency.forEach((word, count) -> entries.add(new AbstractMap.SimpleImmutableEntry<>(word, count)));
+        entries.sort(Map.Entry.<String, Integer>comparingByValue().reversed());
+        return entries;
     }
 
     // Method to print top N frequent words
@@ -66,33 +212,157 @@ public class FrequencyCounter {
 
     // Method to get frequency list for a single file
     public List<Entry<String, Integer>> getList(String path) {
-        // Read words from file
-        List<String> wordList = readWordsFromFile(path);
-        // Build frequency map
-        Map<String, Integer> frequencyMap = buildFrequencyMap(wordList);
         // Return sorted frequencies
-        return getSortedFrequencies(frequencyMap);
+        return getSortedFrequencies(countWordsInFile(path));
     }
 
     // Method to initialize frequency analysis for all files in directory
     public List<Entry<String, Integer>> init(String directoryPath) {
-        // Initialize list to aggregate results
-        List<Entry<String, Integer>> aggregatedList = new ArrayList<>();
-
-        // Process all files in directory
-        FileUtils.readFiles(directoryPath, path -> {
-            // Get frequencies for each file
-            List<Entry<String, Integer>> fileList = getList(path.toString());
-            // Add to aggregated list
-            aggregatedList.addAll(fileList);
+        // Process all files in directory through the shared ingest pipeline
+        IngestPipeline.run(directoryPath, List.of(this));
+        return results;
+    }
+
+    // Method to count the words of one file already read by the ingest pipeline
+    @Override
+    public synchronized void accept(ParsedFile file) {
+        decodeSavedState();
+        try {
+            // Get frequencies for the file and cache them under the file's current stamp
+            Path path = file.path();
+            long size = Files.size(path);
+            // Large files, including those too large to map in one piece, are counted on all cores
+            WordCountMap counts = file.table() == null || size >= PARALLEL_THRESHOLD_BYTES
+                    ? countWordsParallel(path)
+                    : countChunk(file.table().buffer());
+            replaceFile(path, new FileCounts(size, Files.getLastModifiedTime(path).toMillis(), counts));
+        } catch (IOException e) {
+            System.err.println("Failed to read file: " + file.path() + ": " + e.getMessage());
+        }
+    }
+
+    // Method to sort the merged frequencies after the last file
+    @Override
+    public synchronized void complete() {
+        results = getSortedFrequencies(totals);
+    }
+
+    // Method to restore the per-file counts saved from files with these stamps
+    // The segment is only checked here and decoded the first time the counts are used
+    @Override
+    public synchronized boolean loadState(String directory, List<String> sources) {
+        Path path = Paths.get(directory, STATE_FILE);
+        try {
+            savedState = SegmentIO.mapCurrent(path, STATE_MAGIC, STATE_VERSION, sources);
+            if (savedState != null) {
+                System.out.println("Word counts mapped from " + path + ".");
+            }
+            return savedState != null;
+        } catch (IOException e) {
+            System.err.println("Failed to load the word counts, recounting: " + e.getMessage());
+            return false;
+        }
+    }
+
+    // Helper method to decode the counts mapped by loadState, if they have not been used yet
+    private void decodeSavedState() {
+        if (savedState == null) {
+            return;
+        }
+        ByteBuffer buffer = savedState;
+        savedState = null;
+        try {
+            int fileCount = buffer.getInt();
+            Map<Path, FileCounts> loaded = new HashMap<>();
+            for (int i = 0; i < fileCount; i++) {
+                Path file = Path.of(SegmentIO.readString(buffer));
+                long size = buffer.getLong();
+                long lastModified = buffer.getLong();
+                loaded.put(file, new FileCounts(size, lastModified, WordCountMap.readFrom(buffer)));
+            }
+            loaded.forEach(this::replaceFile);
+            results = getSortedFrequencies(totals);
+        } catch (RuntimeException e) {
+            // Nothing was applied, so the next refresh counts every file again
+            System.err.println("Failed to decode the saved word counts, recounting: " + e);
+        }
+    }
+
+    // Method to save the per-file counts with the size and modification time each was counted at
+    @Override
+    public synchronized void saveState(String directory, List<String> sources) {
+        decodeSavedState();
+        SegmentIO.writeFile(Paths.get(directory, STATE_FILE), out -> {
+            SegmentIO.writeHeader(out, STATE_MAGIC, STATE_VERSION, sources);
+            out.writeInt(fileCounts.size());
+            for (Map.Entry<Path, FileCounts> entry : fileCounts.entrySet()) {
+                SegmentIO.writeString(out, entry.getKey().toString());
+                out.writeLong(entry.getValue().size);
+                out.writeLong(entry.getValue().lastModified);
+                entry.getValue().counts.writeTo(out);
+            }
         });
+    }
+
+    // Method to get the frequencies computed by the last ingest or refresh
+    public synchronized List<Entry<String, Integer>> getResults() {
+        decodeSavedState();
+        return results;
+    }
+
+    // Method to bring the frequencies up to date, re-counting only files added or changed since last time
+    public synchronized List<Entry<String, Integer>> refresh(String directoryPath) {
+        decodeSavedState();
+        boolean changed = false;
+        Set<Path> present = new HashSet<>();
+        List<Path> paths = new ArrayList<>();
+        FileUtils.readFiles(directoryPath, paths::add);
+
+        for (Path path : paths) {
+            present.add(path);
+            try {
+                long size = Files.size(path);
+                long lastModified = Files.getLastModifiedTime(path).toMillis();
+                FileCounts cached = fileCounts.get(path);
+                if (cached != null && cached.size == size && cached.lastModified == lastModified) {
+                    continue;
+                }
+                WordCountMap counts = size >= PARALLEL_THRESHOLD_BYTES
+                        ? countWordsParallel(path)
+                        : countWords(readContent(path));
+                replaceFile(path, new FileCounts(size, lastModified, counts));
+                changed = true;
+            } catch (IOException e) {
+                // The file may have been removed while listing; its counts go with the next refresh
+                System.err.println("Failed to read file: " + path + ": " + e.getMessage());
+            }
+        }
 
-        // Sort and return aggregated frequencies
-        return getSortedFrequencies(
-                aggregatedList.stream()
-                        .collect(Collectors.groupingBy(
-                                Entry::getKey,
-                                Collectors.summingInt(Entry::getValue))));
+        // Drop the counts of files that were deleted
+        for (Path path : new ArrayList<>(fileCounts.keySet())) {
+            if (!present.contains(path)) {
+                replaceFile(path, null);
+                changed = true;
+            }
+        }
+
+        // Sorting is the expensive part, so an unchanged directory reuses the previous list
+        if (changed) {
+            results = getSortedFrequencies(totals);
+        }
+        return results;
+    }
+
+    // Helper method to swap a file's counts in the totals, removing the file if counts is null
+    private void replaceFile(Path path, FileCounts counts) {
+        FileCounts previous = counts == null ? fileCounts.remove(path) : fileCounts.put(path, counts);
+        // Words whose total drops to zero are removed by the map itself
+        if (previous != null) {
+            previous.counts.forEach((word, count) -> totals.add(word, -count));
+        }
+        if (counts != null) {
+            counts.counts.forEach(totals::add);
+        }
     }
 
     // Main method to run frequency analysis
@@ -0,0 +1,24 @@
+// Define the package for the ingest consumer interface
+package com.example.backend.services;
+
+// Import Java utility classes
+import java.util.List;
+
+// Interface for services that build their state from the files read by the ingest pipeline
+public interface IngestConsumer {
+    // Method called once per parsed file, in path order, always from the same thread
+    void accept(ParsedFile file);
+
+    // Method called after the last file has been accepted
+    default void complete() {
+    }
+
+    // Method to restore state saved from files with exactly these stamps, returning false if there is none
+    default boolean loadState(String directory, List<String> sources) {
+        return false;
+    }
+
+    // Method to save the state built from files with these stamps, so the next start can skip reading them
+    default void saveState(String directory, List<String> sources) {
+    }
+}
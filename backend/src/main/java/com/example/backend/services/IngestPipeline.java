@@ -0,0 +1,105 @@
+// Define the package for the ingest pipeline service
+package com.example.backend.services;
+
+// Import the memory mapped CSV table
+import com.example.backend.type.CsvTable;
+// Import required utility classes
+import com.example.backend.utils.FileUtils;
+
+// Import Java NIO and utility classes
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+// Class reading every CSV file once, in parallel, and handing the results to each consumer
+public class IngestPipeline {
+
+    // Method to parse all CSV files in a directory in parallel, returned in path order
+    public static List<ParsedFile> parse(String directory) {
+        List<Path> paths = new ArrayList<>();
+        FileUtils.readFiles(directory, paths::add);
+        Collections.sort(paths);
+
+        // Each file is read and parsed on its own fork-join worker
+        return paths.parallelStream()
+                .map(IngestPipeline::parseFile)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    // Class reporting how each consumer of a run fared
+    public static class Result {
+        // Consumers whose complete() or whole task failed, so their state must not be used
+        private final Set<IngestConsumer> failedConsumers = ConcurrentHashMap.newKeySet();
+        // Number of files each consumer skipped because accepting them failed
+        private final Map<IngestConsumer, Integer> failedFiles = new ConcurrentHashMap<>();
+
+        // Method to check whether a consumer finished, possibly after skipping some files
+        public boolean succeeded(IngestConsumer consumer) {
+            return !failedConsumers.contains(consumer);
+        }
+
+        // Method to check whether a consumer finished with every file accepted
+        public boolean clean(IngestConsumer consumer) {
+            return succeeded(consumer) && !failedFiles.containsKey(consumer);
+        }
+    }
+
+    // Method to parse a directory once and feed every consumer, each on its own thread
+    public static Result run(String directory, List<? extends IngestConsumer> consumers) {
+        long start = System.currentTimeMillis();
+        List<ParsedFile> files = parse(directory);
+        System.out.println("Parsed " + files.size() + " files in " + (System.currentTimeMillis() - start) + " ms");
+
+        // Consumers share the parsed files read-only, so they can build their state concurrently
+        Result result = new Result();
+        List<CompletableFuture<Void>> tasks = new ArrayList<>();
+        for (IngestConsumer consumer : consumers) {
+            tasks.add(CompletableFuture.runAsync(() -> {
+                for (ParsedFile file : files) {
+                    try {
+                        consumer.accept(file);
+                    } catch (RuntimeException e) {
+                        // A bad file is skipped, the consumer carries on with the others
+                        System.err.println("Failed to ingest " + file.path() + " into "
+                                + consumer.getClass().getSimpleName() + ": " + e);
+                        result.failedFiles.merge(consumer, 1, Integer::sum);
+                    }
+                }
+                consumer.complete();
+            }));
+        }
+
+        for (int i = 0; i < tasks.size(); i++) {
+            try {
+                tasks.get(i).join();
+            } catch (RuntimeException e) {
+                // One failing consumer should not stop the others from finishing
+                e.printStackTrace();
+                result.failedConsumers.add(consumers.get(i));
+            }
+        }
+        System.out.println("Ingest finished in " + (System.currentTimeMillis() - start) + " ms");
+        return result;
+    }
+
+    // Helper method to map a file once and index its header and rows
+    private static ParsedFile parseFile(Path path) {
+        System.out.println("Reading file: " + path.toString());
+        try {
+            if (Files.size(path) > CsvTable.MAX_MAPPED_BYTES) {
+                // Still hand the file over, consumers that stream files can read it themselves
+                System.out.println("File " + path + " is too large to map, only streaming consumers will read it.");
+                return new ParsedFile(path, null);
+            }
+            // Only field offsets are built here, consumers decode the fields they use
+            return new ParsedFile(path, CsvTable.open(path));
+        } catch (Exception e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+}
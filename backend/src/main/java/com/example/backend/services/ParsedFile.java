@@ -0,0 +1,40 @@
+// Define the package for the parsed file record
+package com.example.backend.services;
+
+// Import the memory mapped CSV table
+import com.example.backend.type.CsvTable;
+
+// Import Java NIO and utility classes
+import java.nio.file.Path;
+import java.util.AbstractList;
+import java.util.List;
+
+// Record holding one CSV file after the ingest pipeline has mapped and indexed it
+// Fields stay as slices of the mapped file until a consumer asks for them as Strings
+// table is null for a file larger than CsvTable.MAX_MAPPED_BYTES, which consumers must read from path themselves
+public record ParsedFile(Path path, CsvTable table) {
+    // Method to decode the whole file as text, null when the file was too large to map
+    public String content() {
+        return table == null ? null : table.text();
+    }
+
+    // Method to decode the header row, null when the file is empty or too large to map
+    public String[] headers() {
+        return table == null || table.rowCount() == 0 ? null : table.row(0);
+    }
+
+    // Method to get the rows after the header, each decoded when it is read
+    public List<String[]> rows() {
+        return new AbstractList<String[]>() {
+            @Override
+            public String[] get(int index) {
+                return table.row(index + 1);
+            }
+
+            @Override
+            public int size() {
+                return table == null ? 0 : Math.max(0, table.rowCount() - 1);
+            }
+        };
+    }
+}
@@ -0,0 +1,203 @@
+// Define the package for the query engine service
+package com.example.backend.services;
+
+// Import required classes
+import com.example.backend.type.InvertedIndexTrie;
+import com.example.backend.type.Postings;
+
+// Import Java utility classes
+import java.util.*;
+import java.util.function.IntFunction;
+
+// Class evaluating AND/OR/NOT and quoted phrase queries against the tokenized index
+public class QueryEngine {
+    // Tokenized index mapping single words to row ids
+    private final InvertedIndexTrie tokenIndex;
+    // Lookup of a row's cell values, used to verify phrases
+    private final IntFunction<String[]> rowValues;
+
+    // Class representing one query operand: a single word or a quoted phrase
+    private static class Clause {
+        // Words of the clause, one entry for a plain term
+        final List<String> tokens;
+        // Flag indicating the clause was negated with NOT or '-'
+        final boolean negated;
+
+        Clause(List<String> tokens, boolean negated) {
+            this.tokens = tokens;
+            this.negated = negated;
+        }
+    }
+
+    // Constructor
+    public QueryEngine(InvertedIndexTrie tokenIndex, IntFunction<String[]> rowValues) {
+        this.tokenIndex = tokenIndex;
+        this.rowValues = rowValues;
+    }
+
+    // Method to split text into lowercase alphanumeric tokens
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        for (String token : text.toLowerCase().split("[^a-z0-9]+")) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    // Method to evaluate a query: space means AND, OR separates alternatives, NOT or '-' excludes
+    public Postings evaluate(String query) {
+        List<Postings> alternatives = new ArrayList<>();
+        for (List<Clause> group : parse(query)) {
+            alternatives.add(evaluateGroup(group));
+        }
+        return Postings.unionAll(alternatives);
+    }
+
+    // Method to list the words of every non-negated clause, used for relevance scoring
+    public List<String> positiveTerms(String query) {
+        List<String> terms = new ArrayList<>();
+        for (List<Clause> group : parse(query)) {
+            for (Clause clause : group) {
+                if (!clause.negated) {
+                    terms.addAll(clause.tokens);
+                }
+            }
+        }
+        return terms;
+    }
+
+    // Helper method to evaluate one AND group
+    private Postings evaluateGroup(List<Clause> group) {
+        List<Clause> required = new ArrayList<>();
+        List<Postings> excluded = new ArrayList<>();
+        for (Clause clause : group) {
+            if (clause.negated) {
+                excluded.add(clausePostings(clause));
+            } else {
+                required.add(clause);
+            }
+        }
+        // A group of only exclusions matches nothing rather than the whole catalog
+        if (required.isEmpty()) {
+            return Postings.EMPTY;
+        }
+
+        // Intersect single word postings smallest first so the candidate set shrinks fastest
+        List<Postings> lists = new ArrayList<>();
+        for (Clause clause : required) {
+            for (String token : clause.tokens) {
+                lists.add(tokenIndex.search(token));
+            }
+        }
+        lists.sort(Comparator.comparingInt(Postings::size));
+        Postings result = lists.get(0);
+        for (int i = 1; i < lists.size() && !result.isEmpty(); i++) {
+            result = Postings.intersect(result, lists.get(i));
+        }
+
+        // Phrases need their words adjacent, which the postings alone cannot tell
+        for (Clause clause : required) {
+            if (clause.tokens.size() > 1 && !result.isEmpty()) {
+                result = filterPhrase(result, clause.tokens);
+            }
+        }
+
+        // Drop excluded rows last, once the candidate set is small
+        for (Postings exclusion : excluded) {
+            result = Postings.andNot(result, exclusion);
+        }
+        return result;
+    }
+
+    // Helper method to get the rows containing a clause
+    private Postings clausePostings(Clause clause) {
+        Postings result = tokenIndex.search(clause.tokens.get(0));
+        for (int i = 1; i < clause.tokens.size() && !result.isEmpty(); i++) {
+            result = Postings.intersect(result, tokenIndex.search(clause.tokens.get(i)));
+        }
+        return clause.tokens.size() > 1 ? filterPhrase(result, clause.tokens) : result;
+    }
+
+    // Helper method to keep only rows where a cell contains the phrase words consecutively
+    private Postings filterPhrase(Postings candidates, List<String> phrase) {
+        Postings matches = new Postings();
+        for (int i = 0; i < candidates.size(); i++) {
+            int rowId = candidates.get(i);
+            for (String cell : rowValues.apply(rowId)) {
+                if (cell != null && Collections.indexOfSubList(tokenize(cell), phrase) >= 0) {
+                    matches.add(rowId);
+                    break;
+                }
+            }
+        }
+        return matches;
+    }
+
+    // Helper method to parse a query into OR-separated groups of AND-ed clauses
+    private List<List<Clause>> parse(String query) {
+        List<List<Clause>> groups = new ArrayList<>();
+        List<Clause> current = new ArrayList<>();
+        boolean negateNext = false;
+        int i = 0;
+
+        while (i < query.length()) {
+            char c = query.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+                continue;
+            }
+
+            // Quoted phrase runs until the closing quote or the end of the query
+            if (c == '"') {
+                int end = query.indexOf('"', i + 1);
+                if (end < 0) {
+                    end = query.length();
+                }
+                addClause(current, query.substring(i + 1, end), negateNext);
+                negateNext = false;
+                i = end + 1;
+                continue;
+            }
+
+            // Read one whitespace delimited word
+            int end = i;
+            while (end < query.length() && !Character.isWhitespace(query.charAt(end)) && query.charAt(end) != '"') {
+                end++;
+            }
+            String word = query.substring(i, end);
+            i = end;
+
+            // Operators are only recognised in upper case so they can still be searched as words
+            if (word.equals("OR")) {
+                if (!current.isEmpty()) {
+                    groups.add(current);
+                    current = new ArrayList<>();
+                }
+            } else if (word.equals("AND")) {
+                // AND is the default between clauses
+            } else if (word.equals("NOT")) {
+                negateNext = true;
+            } else if (word.startsWith("-") && word.length() > 1) {
+                addClause(current, word.substring(1), true);
+                negateNext = false;
+            } else {
+                addClause(current, word, negateNext);
+                negateNext = false;
+            }
+        }
+        if (!current.isEmpty()) {
+            groups.add(current);
+        }
+        return groups;
+    }
+
+    // Helper method to tokenize a clause and add it to a group if it has any words
+    private void addClause(List<Clause> group, String text, boolean negated) {
+        List<String> tokens = tokenize(text);
+        if (!tokens.isEmpty()) {
+            group.add(new Clause(tokens, negated));
+        }
+    }
+}
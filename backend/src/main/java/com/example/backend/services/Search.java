@@ -2,92 +2,302 @@
 package com.example.backend.services;
 
 // Import required classes
+import com.example.backend.type.DocumentTable;
 import com.example.backend.type.InvertedIndexTrie;
+import com.example.backend.type.NumericRangeIndex;
+import com.example.backend.type.Postings;
+import com.example.backend.type.RowStore;
 import com.example.backend.utils.FileUtils;
-import com.opencsv.CSVReader;
-import com.opencsv.CSVReaderBuilder;
+import com.example.backend.utils.SegmentIO;
 
-// Import Java IO and utility classes
-import java.io.FileReader;
+// Import Java IO, NIO and utility classes
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.file.*;
 import java.util.*;
 
 // Class implementing search functionality using inverted index
-public class Search {
+// An instance is filled once by the ingest pipeline and only read afterwards, so it can be shared as a snapshot
+public class Search implements IngestConsumer {
+    // File name of the binary index segment inside the data directory
+    public static final String SEGMENT_FILE = "search-index.seg";
+    // Marker and format version at the start of every segment
+    private static final int SEGMENT_MAGIC = 0x53494458;
+    private static final int SEGMENT_VERSION = 3;
+
     // Inverted index for general text search
-    public InvertedIndexTrie invertedIndex = new InvertedIndexTrie();
+    public final InvertedIndexTrie invertedIndex = new InvertedIndexTrie();
+    // Inverted index of single words inside each cell
+    public final InvertedIndexTrie tokenIndex = new InvertedIndexTrie();
+    // Boolean and phrase query engine over the word index
+    public final QueryEngine queryEngine = new QueryEngine(tokenIndex, this::rowValues);
     // Inverted index for key-value pair search
-    public InvertedIndexTrie invertedIndexKeyMapped = new InvertedIndexTrie();
+    public final InvertedIndexTrie invertedIndexKeyMapped = new InvertedIndexTrie();
+    // Sorted numeric index for the monthly price filter
+    public final NumericRangeIndex priceIndex = new NumericRangeIndex();
+    // Sorted numeric index for the capacity filter (in GB)
+    public final NumericRangeIndex capacityIndex = new NumericRangeIndex();
+    // Dense ordinals for documents and their rows, shared by both indexes
+    public final DocumentTable documents = new DocumentTable();
+    // Rows pre-encoded as JSON so search responses can copy them without building maps
+    public final RowStore rowStore = new RowStore();
     // Map to store CSV headers by file
-    static Map<String, String[]> fileHeaders = new HashMap<>();
+    final Map<String, String[]> fileHeaders = new HashMap<>();
     // Map to store CSV rows by file
-    static Map<String, List<String[]>> fileRows = new HashMap<>();
+    final Map<String, List<String[]>> fileRows = new HashMap<>();
     // Set to store unique storage sizes
-    public HashSet<String> storageSizes = new HashSet<>();
+    public final HashSet<String> storageSizes = new HashSet<>();
 
-    // Method to build the inverted index trie
+    // Method to build the inverted index trie from the default data directory
     public void buildTrie() {
+        buildTrie("./data");
+    }
+
+    // Method to build the inverted index trie from a data directory, reporting whether every file was indexed
+    public IngestPipeline.Result buildTrie(String directory) {
         System.out.println("Building the inverted index Trie. Please wait...");
+        return IngestPipeline.run(directory, List.of(this));
+    }
 
-        try {
-            // Process all files in the data directory
-            FileUtils.readFiles("./data", path -> {
-                System.out.println("Reading file: " + path.toString());
-                // Initialize CSV reader
-                try (CSVReader csvReader = new CSVReaderBuilder(new FileReader(path.toString())).build()) {
-                    String documentId = path.toString();
-
-                    // Read CSV headers
-                    String[] headers = csvReader.readNext();
-                    if (headers == null) {
-                        System.out.println("File " + documentId + " is empty or missing headers.");
-                        return;
+    // Method to index one parsed CSV file
+    @Override
+    public void accept(ParsedFile file) {
+        String documentId = file.path().toString();
+        int documentOrdinal = documents.intern(documentId);
+
+        if (file.table() == null) {
+            System.out.println("File " + documentId + " is too large to index.");
+            return;
+        }
+
+        // Check CSV headers
+        String[] headers = file.headers();
+        if (headers == null) {
+            System.out.println("File " + documentId + " is empty or missing headers.");
+            return;
+        }
+        fileHeaders.put(documentId, headers);
+
+        // Decode the rows once, since they are kept to build search results
+        List<String[]> rows = new ArrayList<>(file.rows());
+        fileRows.put(documentId, rows);
+        int lineNumber = 0;
+
+        // Process each CSV row
+        for (String[] row : rows) {
+            lineNumber++;
+            int rowId = documents.addRow(documentOrdinal, lineNumber);
+            storeRow(rowId);
+
+            // Process each column in the row
+            for (int i = 0; i < row.length && i < headers.length; i++) {
+                String key = headers[i].toLowerCase();
+                String value = row[i];
+
+                if (value != null && !value.isEmpty()) {
+                    // Normalize capacity values
+                    if (key.equals("capacity")) {
+                        value = normalizeCapacity(value);
+                        storageSizes.add(value);
+                    }
+                }
+
+                if (value != null && !value.isEmpty()) {
+                    // Add key-value pair to mapped index
+                    String indexedTerm = key + ":" + value.toLowerCase();
+                    invertedIndexKeyMapped.addWord(indexedTerm, rowId);
+
+                    // Add value to general index
+                    invertedIndex.addWord(row[i].toLowerCase(), rowId);
+
+                    // Add each word of the value to the word index
+                    for (String token : QueryEngine.tokenize(row[i])) {
+                        tokenIndex.addWord(token, rowId);
                     }
-                    fileHeaders.put(documentId, headers);
-
-                    List<String[]> rows = new ArrayList<>();
-                    String[] row;
-                    int lineNumber = 0;
-
-                    // Process each CSV row
-                    while ((row = csvReader.readNext()) != null) {
-                        lineNumber++;
-                        rows.add(row);
-
-                        // Process each column in the row
-                        for (int i = 0; i < row.length; i++) {
-                            String key = headers[i].toLowerCase();
-                            String value = row[i];
-
-                            if (value != null && !value.isEmpty()) {
-                                // Normalize capacity values
-                                if (key.equals("capacity")) {
-                                    value = normalizeCapacity(value);
-                                    storageSizes.add(value);
-                                }
-                            }
-
-                            if (value != null && !value.isEmpty()) {
-                                // Add key-value pair to mapped index
-                                String indexedTerm = key + ":" + value.toLowerCase();
-                                invertedIndexKeyMapped.addWord(indexedTerm, documentId, lineNumber);
-
-                                // Add value to general index
-                                invertedIndex.addWord(row[i].toLowerCase(), documentId, lineNumber);
-                            }
-                        }
+
+                    // Add numeric filter fields to their range indexes
+                    if (key.equals("price per month")) {
+                        priceIndex.addIfNumeric(value, rowId);
+                    } else if (key.equals("capacity")) {
+                        capacityIndex.addIfNumeric(value, rowId);
                     }
-                    fileRows.put(documentId, rows);
-                } catch (Exception e) {
-                    e.printStackTrace();
                 }
-            });
+            }
+        }
+    }
 
-            System.out.println("Inverted index Trie has been built successfully!");
-        } catch (Exception e) {
-            e.printStackTrace();
+    // Helper method to encode a row into the row store once, instead of on every search that returns it
+    private void storeRow(int rowId) {
+        String documentId = documents.document(documents.documentOf(rowId));
+        int lineNumber = documents.lineOf(rowId);
+        rowStore.put(rowId, RowStore.encode(lineNumber + "_" + documentId, documentId,
+                fileHeaders.get(documentId), rowValues(rowId)));
+    }
+
+    // Method to finish the index after the last file
+    @Override
+    public void complete() {
+        // Sort the range indexes once so filters can binary search them
+        priceIndex.freeze();
+        capacityIndex.freeze();
+        // Precompute ranked completions for bounded autocomplete
+        invertedIndex.buildTopCompletions(InvertedIndexTrie.DEFAULT_TOP_COMPLETIONS);
+
+        System.out.println("Inverted index Trie has been built successfully!");
+    }
+
+    // Method to write this index to a binary segment so the next start can skip CSV parsing
+    // sources must be the stamps taken before the CSV files were read, so a file changed during the build
+    // leaves the segment stale instead of current
+    public void writeSegment(String directory, List<String> sources) {
+        Path segment = Paths.get(directory, SEGMENT_FILE);
+        boolean written = SegmentIO.writeFile(segment, out -> {
+            SegmentIO.writeHeader(out, SEGMENT_MAGIC, SEGMENT_VERSION, sources);
+
+            // Row table: headers of every document, and its rows as offsets into one block of cells
+            documents.writeTo(out);
+            for (int ordinal = 0; ordinal < documents.documentCount(); ordinal++) {
+                String documentId = documents.document(ordinal);
+                String[] headers = fileHeaders.get(documentId);
+                out.writeBoolean(headers != null);
+                if (headers == null) {
+                    continue;
+                }
+                writeCells(out, headers);
+                writeRows(out, fileRows.get(documentId));
+            }
+
+            out.writeInt(storageSizes.size());
+            for (String size : storageSizes) {
+                SegmentIO.writeString(out, size);
+            }
+
+            // Encoded rows, so a loaded index answers searches without encoding anything
+            rowStore.writeTo(out, documents.rowCount());
+
+            // Indexes, with the ranked completion lists
+            invertedIndex.writeTo(out);
+            tokenIndex.writeTo(out);
+            invertedIndexKeyMapped.writeTo(out);
+            priceIndex.writeTo(out);
+            capacityIndex.writeTo(out);
+        });
+        if (written) {
+            System.out.println("Index segment written to " + segment);
         }
     }
 
+    // Method to load a segment written by writeSegment, or return null if it is missing or not built from sources
+    // Rows, encoded rows, trie nodes and postings stay in the mapped file and are decoded when a search reaches them
+    public static Search loadSegment(String directory, List<String> sources) {
+        Path segment = Paths.get(directory, SEGMENT_FILE);
+        try {
+            ByteBuffer buffer = SegmentIO.mapCurrent(segment, SEGMENT_MAGIC, SEGMENT_VERSION, sources);
+            if (buffer == null) {
+                return null;
+            }
+
+            Search search = new Search();
+            search.documents.readFrom(buffer);
+            for (int ordinal = 0; ordinal < search.documents.documentCount(); ordinal++) {
+                if (buffer.get() == 0) {
+                    continue;
+                }
+                String documentId = search.documents.document(ordinal);
+                search.fileHeaders.put(documentId, readCells(buffer));
+                search.fileRows.put(documentId, new MappedRows(buffer));
+            }
+
+            int storageSizeCount = buffer.getInt();
+            for (int i = 0; i < storageSizeCount; i++) {
+                search.storageSizes.add(SegmentIO.readString(buffer));
+            }
+
+            search.rowStore.readFrom(buffer);
+            search.invertedIndex.readFrom(buffer);
+            search.tokenIndex.readFrom(buffer);
+            search.invertedIndexKeyMapped.readFrom(buffer);
+            search.priceIndex.readFrom(buffer);
+            search.capacityIndex.readFrom(buffer);
+
+            System.out.println("Index segment loaded from " + segment);
+            return search;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Failed to load index segment, rebuilding: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Class reading a document's rows from a segment, decoding a row each time it is read
+    private static class MappedRows extends AbstractList<String[]> {
+        // Start of each row in cells
+        private final IntBuffer offsets;
+        // Cells of every row, as written by writeCells
+        private final ByteBuffer cells;
+
+        // Constructor reading the row block written by writeRows, leaving the buffer after it
+        MappedRows(ByteBuffer buffer) {
+            offsets = SegmentIO.sliceInts(buffer);
+            cells = SegmentIO.sliceBytes(buffer);
+        }
+
+        @Override
+        public String[] get(int index) {
+            return readCells(cells.duplicate().position(offsets.get(index)));
+        }
+
+        @Override
+        public int size() {
+            return offsets.limit();
+        }
+    }
+
+    // Method to describe every CSV file by path, size and modification time
+    public static List<String> sourceStamps(String directory) {
+        List<String> stamps = new ArrayList<>();
+        FileUtils.readFiles(directory, path -> {
+            try {
+                stamps.add(path + "|" + Files.size(path) + "|" + Files.getLastModifiedTime(path).toMillis());
+            } catch (IOException e) {
+                stamps.add(path + "|?");
+            }
+        });
+        Collections.sort(stamps);
+        return stamps;
+    }
+
+    // Helper method to write one CSV record
+    private static void writeCells(DataOutputStream out, String[] cells) throws IOException {
+        out.writeInt(cells.length);
+        for (String cell : cells) {
+            SegmentIO.writeString(out, cell);
+        }
+    }
+
+    // Helper method to write a document's rows as their offsets followed by one block of cells
+    private static void writeRows(DataOutputStream out, List<String[]> rows) throws IOException {
+        ByteArrayOutputStream block = new ByteArrayOutputStream();
+        DataOutputStream cells = new DataOutputStream(block);
+        int[] offsets = new int[rows.size()];
+        for (int i = 0; i < rows.size(); i++) {
+            offsets[i] = cells.size();
+            writeCells(cells, rows.get(i));
+        }
+        SegmentIO.writeInts(out, offsets, offsets.length);
+        out.writeInt(block.size());
+        block.writeTo(out);
+    }
+
+    // Helper method to read one CSV record
+    private static String[] readCells(ByteBuffer buffer) {
+        String[] cells = new String[buffer.getInt()];
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = SegmentIO.readString(buffer);
+        }
+        return cells;
+    }
+
     // Method to normalize storage capacity values
     private String normalizeCapacity(String value) {
         value = value.trim().toUpperCase();
@@ -109,6 +319,9 @@ public class Search {
             Search search = new Search();
             // Build the search index
             search.buildTrie();
+            // Report the estimated memory used by both tries
+            search.invertedIndex.printFootprint();
+            search.invertedIndexKeyMapped.printFootprint();
             Scanner scanner = new Scanner(System.in);
             while (true) {
                 System.out.println("\nEnter a word to search or prefix for suggestions (type 'exit' to quit): ");
@@ -128,7 +341,7 @@ public class Search {
                 }
 
                 // Perform search
-                Map<String, HashSet<Integer>> searchResults = search.invertedIndex.search(query);
+                Postings searchResults = search.invertedIndex.search(query);
                 if (searchResults.isEmpty()) {
                     System.out.println("No results found for '" + query + "'.");
                 } else {
@@ -144,34 +357,40 @@ public class Search {
         }
     }
 
+    // Method to get the cell values of a row
+    public String[] rowValues(int rowId) {
+        String documentId = documents.document(documents.documentOf(rowId));
+        return fileRows.get(documentId).get(documents.lineOf(rowId) - 1);
+    }
+
     // Method to convert search results to JSON format
-    public List<Map<String, Object>> convertToJson(Map<String, HashSet<Integer>> searchResults) {
+    public List<Map<String, Object>> convertToJson(Postings searchResults) {
         List<Map<String, Object>> outputList = new ArrayList<>();
 
-        // Process each document in search results
-        searchResults.forEach((documentId, lineNumbers) -> {
+        // Process each matching row id
+        for (int i = 0; i < searchResults.size(); i++) {
+            int rowId = searchResults.get(i);
+            String documentId = documents.document(documents.documentOf(rowId));
+            int lineNumber = documents.lineOf(rowId);
             String[] headers = fileHeaders.get(documentId);
             List<String[]> rows = fileRows.get(documentId);
 
-            // Process each matching line number
-            for (int lineNumber : lineNumbers) {
-                if (lineNumber - 1 < rows.size()) {
-                    Map<String, Object> rowMap = new HashMap<>();
-                    // Create unique ID for result
-                    rowMap.put("id", lineNumber + "_" + documentId);
-                    rowMap.put("document", documentId);
-                    String[] row = rows.get(lineNumber - 1);
-
-                    // Add all columns to the result
-                    for (int i = 0; i < headers.length && i < row.length; i++) {
-                        rowMap.put(headers[i], row[i]);
-                    }
+            if (lineNumber - 1 < rows.size()) {
+                Map<String, Object> rowMap = new HashMap<>();
+                // Create unique ID for result
+                rowMap.put("id", lineNumber + "_" + documentId);
+                rowMap.put("document", documentId);
+                String[] row = rows.get(lineNumber - 1);
 
-                    outputList.add(rowMap);
+                // Add all columns to the result
+                for (int j = 0; j < headers.length && j < row.length; j++) {
+                    rowMap.put(headers[j], row[j]);
                 }
+
+                outputList.add(rowMap);
             }
-        });
+        }
 
         return outputList;
     }
-}
\ No newline at end of file
+}
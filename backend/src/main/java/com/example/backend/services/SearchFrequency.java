@@ -1,154 +1,59 @@
 // Define the package for the search frequency service
 package com.example.backend.services;
 
+// Import trending model
+import com.example.backend.model.TrendingTerm;
+// Import Space-Saving summary and sliding window counters
+import com.example.backend.type.SlidingWindowCounter;
+import com.example.backend.type.SpaceSaving;
+
 // Import required Java classes
 import java.io.*;//file handling
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;//provides data structure List,map,treemap
 import java.util.Map.Entry;
-import java.util.regex.Pattern;//Helps extract words from text using regular expressions
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;//used storing and processing search term techniques.
 
-// Class representing a node in the AVL tree
-class TreeNode {
-    // The search term stored in this node
-    String term;
-    // Frequency count of the search term
-    int count;
-    // Height of the node in the AVL tree
-    int height;
-    // Left and right child nodes
-    TreeNode left, right;
-    //References to child nodes
-
-    // Constructor to create a new tree node
-    TreeNode(String term) {
-        this.term = term;
-        this.count = 1;
-        this.height = 1;
-    }
-}
-
-// Class implementing an AVL tree for search term tracking
-class AVLTree {
-    // Root node of the tree
-    private TreeNode root;
-    // Map to log search term frequencies
-    private Map<String, Integer> searchLog = new TreeMap<>();
-
-    // Method to get height of a node
-    private int nodeHeight(TreeNode node) {
-        return node == null ? 0 : node.height;
-    }
-
-    // Method to perform right rotation
-    private TreeNode rotateRight(TreeNode y) {
-        TreeNode x = y.left;
-        TreeNode T2 = x.right;
-
-        // Perform rotation
-        x.right = y;
-        y.left = T2;
-
-        // Update heights
-        y.height = Math.max(nodeHeight(y.left), nodeHeight(y.right)) + 1;
-        x.height = Math.max(nodeHeight(x.left), nodeHeight(x.right)) + 1;
-
-        return x;
-    }
-
-    // Method to perform left rotation
-    private TreeNode rotateLeft(TreeNode x) {
-        TreeNode y = x.right;
-        TreeNode T2 = y.left;
-
-        // Perform rotation
-        y.left = x;
-        x.right = T2;
-
-        // Update heights
-        x.height = Math.max(nodeHeight(x.left), nodeHeight(x.right)) + 1;
-        y.height = Math.max(nodeHeight(y.left), nodeHeight(y.right)) + 1;
-
-        return y;
-    }
-
-    // Method to calculate balance factor
-    private int balanceFactor(TreeNode node) {
-        return node == null ? 0 : nodeHeight(node.left) - nodeHeight(node.right);
-    }
+// Class counting search terms, safe to update from many request threads at once
+class SearchTermCounter {
+    // Map of search terms to their counts; adders spread concurrent increments over cells
+    private final ConcurrentHashMap<String, LongAdder> counts = new ConcurrentHashMap<>();
 
     // Public method to insert a term
     public void insert(String term) {
-        root = addNode(root, term);
+        // computeIfAbsent only locks its bin when the term is new, increments never lock
+        counts.computeIfAbsent(term, key -> new LongAdder()).increment();
     }
 
-    // Recursive method to add a node
-    private TreeNode addNode(TreeNode node, String term) {
-        if (node == null)
-            return new TreeNode(term);
-
-        if (term.equals(node.term)) {
-            node.count++;
-            return node;
-        } else if (term.compareTo(node.term) < 0) {
-            node.left = addNode(node.left, term);
-        } else {
-            node.right = addNode(node.right, term);
-        }
-
-        node.height = 1 + Math.max(nodeHeight(node.left), nodeHeight(node.right));
-
-        int balance = balanceFactor(node);
-
-        // Handle rotation cases
-        if (balance > 1 && term.compareTo(node.left.term) < 0)
-            return rotateRight(node);
-
-        if (balance < -1 && term.compareTo(node.right.term) > 0)
-            return rotateLeft(node);
-
-        if (balance > 1 && term.compareTo(node.left.term) > 0) {
-            node.left = rotateLeft(node.left);
-            return rotateRight(node);
-        }
-
-        if (balance < -1 && term.compareTo(node.right.term) < 0) {
-            node.right = rotateRight(node.right);
-            return rotateLeft(node);
-        }
-
-        return node;
+    // Method to add several occurrences of a term at once, used when loading a snapshot
+    public void insert(String term, int count) {
+        counts.computeIfAbsent(term, key -> new LongAdder()).add(count);
     }
 
     // Method to find a term's frequency
     public int findTerm(String term) {
-        TreeNode node = findNode(root, term);
+        LongAdder count = counts.get(term);
 
-        if (node == null) {
+        if (count == null) {
             System.out.println("Word: " + term + " not found!");
         } else {
-            System.out.println("Found word: " + term + ", Frequency: " + node.count);
+            System.out.println("Found word: " + term + ", Frequency: " + count.intValue());
         }
 
-        return node == null ? 0 : node.count;
-    }
-
-    // Recursive method to find a node
-    private TreeNode findNode(TreeNode node, String term) {
-        if (node == null || node.term.equals(term))
-            return node;
-
-        if (term.compareTo(node.term) < 0)
-            return findNode(node.left, term);
-
-        return findNode(node.right, term);
+        return count == null ? 0 : count.intValue();
     }
 
     // Method to show top searches
     public List<Map.Entry<String, Integer>> showTopSearches(int limit) {
+        // Copy the counts in term order so equal counts keep listing alphabetically
         Map<String, Integer> frequencyMap = new TreeMap<>();
-        collectFrequencies(root, frequencyMap);
+        counts.forEach((term, count) -> frequencyMap.put(term, count.intValue()));
 
         Stream<Map.Entry<String, Integer>> sortedStream = frequencyMap.entrySet().stream()
                 .sorted((a, b) -> b.getValue().compareTo(a.getValue()));
@@ -162,43 +67,111 @@ class AVLTree {
 
         return topSearches;
     }
-
-    // Method to collect frequencies from tree
-    private void collectFrequencies(TreeNode node, Map<String, Integer> frequencyMap) {
-        if (node == null)
-            return;
-
-        collectFrequencies(node.left, frequencyMap);
-        frequencyMap.put(node.term, node.count);
-        collectFrequencies(node.right, frequencyMap);
-    }
 }
 
 // Main class for search frequency tracking
 public class SearchFrequency {
-    // AVL tree instance for storing search terms
-    AVLTree searchTree = new AVLTree();
+    // Concurrent counter instance for storing search terms
+    SearchTermCounter searchTree = new SearchTermCounter();
+    // Number of terms tracked for the most searched list, which bounds its memory
+    public static final int HEAVY_HITTER_CAPACITY = 1024;
+    // Streaming summary of the most searched terms, answers top-N queries without sorting all terms
+    // Only the history writer thread updates it after start-up, so searches never wait for its lock
+    private final SpaceSaving heavyHitters = new SpaceSaving(HEAVY_HITTER_CAPACITY);
+    // Recent activity per term, only for terms searched in the last day
+    private final ConcurrentHashMap<String, SlidingWindowCounter> recentSearches = new ConcurrentHashMap<>();
+    // Most terms with recent activity kept; beyond it the least searched terms of the day are dropped
+    public static final int MAX_RECENT_TERMS = 100_000;
+    // Size of recentSearches at which idle terms are next pruned, raised after each prune so pruning stays rare
+    private volatile int recentPruneThreshold = 1024;
+    // Flag held while one request thread prunes, so others never wait for it
+    private final AtomicBoolean pruningRecent = new AtomicBoolean(false);
+    // Live history log, appended to and emptied by compaction, so it is kept out of version control
+    public static final String HISTORY_LOG_FILE = "searchHistory.log";
+    // History shipped with the data, read once to seed the counts when there is no snapshot yet, never written
+    public static final String HISTORY_SEED_FILE = "searchHistory.txt";
+
     // Directory for storing search history
     String directory = "";
-    // File path for search history
-    String filePath = directory + "/searchHistory.txt";
+    // File path for the live search history log
+    String filePath = directory + "/" + HISTORY_LOG_FILE;
+    // File path for the seed search history
+    String seedPath = directory + "/" + HISTORY_SEED_FILE;
+
+    // Background appender for the history file
+    private final SearchHistoryWriter historyWriter;
+    // Snapshot of the aggregated counts next to the history file
+    private final Path snapshotPath;
+
+    // Default minimum time between fsyncs of the history file
+    public static final long DEFAULT_FSYNC_INTERVAL_MILLIS = 1000;
 
     // Constructor
     public SearchFrequency(String directory) {
+        this(directory, DEFAULT_FSYNC_INTERVAL_MILLIS);
+    }
+
+    // Constructor with a fsync policy, see SearchHistoryWriter for the special values
+    public SearchFrequency(String directory, long fsyncIntervalMillis) {
         this.directory = directory;
-        this.filePath = directory + "/searchHistory.txt";
+        this.filePath = directory + "/" + HISTORY_LOG_FILE;
+        this.seedPath = directory + "/" + HISTORY_SEED_FILE;
+        this.snapshotPath = Paths.get(directory, SearchHistorySnapshot.SNAPSHOT_FILE);
+        this.historyWriter = new SearchHistoryWriter(Paths.get(filePath), snapshotPath,
+                SearchHistoryWriter.DEFAULT_CAPACITY, fsyncIntervalMillis,
+                SearchHistoryWriter.DEFAULT_SNAPSHOT_INTERVAL_MILLIS,
+                line -> heavyHitters.offer(line.toLowerCase()));
     }
 
-    // Method to initialize search history
+    // Method to initialize search history from the last snapshot and the log written after it
     public void init() {
+        Map<String, Integer> counts = new HashMap<>();
+        long offset = 0;
+        SearchHistorySnapshot snapshot = SearchHistorySnapshot.read(snapshotPath);
+        if (snapshot != null) {
+            counts.putAll(snapshot.counts());
+            offset = snapshot.logOffset();
+        } else {
+            // First start, or the snapshot was deleted: the seed history is not part of any snapshot yet
+            replay(new File(seedPath), 0, counts);
+        }
+
         File file = new File(filePath);
-        if (!file.exists())
-            return;
+        if (offset > file.length()) {
+            // The log was emptied after the snapshot but before the snapshot was updated, so all of it is new
+            offset = 0;
+            try {
+                SearchHistorySnapshot.write(snapshotPath, counts, 0);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+
+        // Replay only the lines written after the snapshot
+        replay(file, offset, counts);
 
-        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            searchTree.insert(entry.getKey(), entry.getValue());
+            heavyHitters.offer(entry.getKey(), entry.getValue());
+        }
+        System.out.println("Search history loaded: " + counts.size() + " terms, "
+                + (file.length() - offset) + " log bytes replayed.");
+
+        // Start appending only after the replay so it does not read lines written meanwhile
+        historyWriter.start(counts);
+    }
+
+    // Helper method to count the lines of a history file from a byte offset
+    private static void replay(File file, long offset, Map<String, Integer> counts) {
+        if (!file.exists()) {
+            return;
+        }
+        try (InputStream in = new FileInputStream(file)) {
+            in.skipNBytes(offset);
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
             String line;
             while ((line = reader.readLine()) != null) {
-                searchTree.insert(line.toLowerCase());
+                counts.merge(line.toLowerCase(), 1, Integer::sum);
             }
         } catch (IOException e) {
             e.printStackTrace();
@@ -208,24 +181,100 @@ public class SearchFrequency {
     // Method to add search term to history
     public void addHistory(String word) {
         searchTree.insert(word.toLowerCase());
-
-        File file = new File(filePath);
-        if (!file.exists()) {
-            file.getParentFile().mkdirs();
+        long now = System.currentTimeMillis();
+        recentSearches.computeIfAbsent(word.toLowerCase(), term -> new SlidingWindowCounter()).add(now);
+        if (recentSearches.size() > recentPruneThreshold) {
+            pruneRecentSearches(now);
         }
+        // Queue the line, the writer thread appends it and counts it in the summary without holding up the search
+        historyWriter.append(word);
+    }
 
-        try (FileWriter fileWriter = new FileWriter(filePath, true)) {
-            fileWriter.append(word + System.lineSeparator());
-        } catch (IOException e) {
-            e.printStackTrace();
+    // Helper method to forget terms idle for a day and, above MAX_RECENT_TERMS, the least searched ones
+    private void pruneRecentSearches(long now) {
+        if (!pruningRecent.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            recentSearches.entrySet().removeIf(entry -> entry.getValue().lastDay(now) == 0);
+            if (recentSearches.size() > MAX_RECENT_TERMS) {
+                // Keep the most active three quarters of the cap, so the next eviction is not right away
+                List<Map.Entry<String, Integer>> byActivity = new ArrayList<>();
+                recentSearches.forEach((term, window) -> byActivity.add(
+                        new AbstractMap.SimpleImmutableEntry<>(term, window.lastDay(now))));
+                byActivity.sort(Map.Entry.comparingByValue());
+                int excess = byActivity.size() - MAX_RECENT_TERMS * 3 / 4;
+                for (int i = 0; i < excess; i++) {
+                    recentSearches.remove(byActivity.get(i).getKey());
+                }
+            }
+            recentPruneThreshold = Math.min(MAX_RECENT_TERMS, Math.max(1024, 2 * recentSearches.size()));
+        } finally {
+            pruningRecent.set(false);
         }
     }
 
+    // Method to write out queued history and stop the writer
+    public void close() {
+        historyWriter.close();
+    }
+
     // Method to get search history
     public List<Map.Entry<String, Integer>> getSearchHistory() {
         return searchTree.showTopSearches(-1);
     }
 
+    // Method to get the limit most searched terms from the streaming summary, exact while fewer
+    // than HEAVY_HITTER_CAPACITY distinct terms have been seen; searches still in the writer queue are not included yet
+    public List<Map.Entry<String, Integer>> getTopSearches(int limit) {
+        List<Map.Entry<String, Integer>> topSearches = new ArrayList<>();
+        for (Map.Entry<String, Long> entry : heavyHitters.top(limit)) {
+            topSearches.add(new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), entry.getValue().intValue()));
+        }
+        return topSearches;
+    }
+
+    // Method to rank the terms searched in the last hour by how far that hour is above their daily average
+    public List<TrendingTerm> getTrending(int limit) {
+        long now = System.currentTimeMillis();
+        Comparator<TrendingTerm> bestFirst = Comparator.comparingDouble(TrendingTerm::growth).reversed()
+                .thenComparing(Comparator.comparingInt(TrendingTerm::lastHour).reversed())
+                .thenComparing(TrendingTerm::term);
+        // Keep only the limit best terms in a min-heap whose head is the worst kept, or every term without a limit
+        Comparator<TrendingTerm> worstFirst = bestFirst.reversed();
+        PriorityQueue<TrendingTerm> heap = new PriorityQueue<>(limit > 0 ? limit : 11, worstFirst);
+        for (Map.Entry<String, SlidingWindowCounter> entry : recentSearches.entrySet()) {
+            SlidingWindowCounter window = entry.getValue();
+            int lastDay = window.lastDay(now);
+            if (lastDay == 0) {
+                // Nothing in a day, forget the term so the map only holds recent activity
+                recentSearches.remove(entry.getKey(), window);
+                continue;
+            }
+            int lastHour = window.lastHour(now);
+            if (lastHour == 0) {
+                continue;
+            }
+            // Growth of the last hour over the average of the other 23, smoothed so new terms are not infinite
+            double baseline = (lastDay - lastHour) / 23.0;
+            double growth = (lastHour + 1) / (baseline + 1);
+            TrendingTerm term = new TrendingTerm(entry.getKey(), window.lastMinute(now), lastHour, lastDay, growth);
+            if (limit <= 0 || heap.size() < limit) {
+                heap.add(term);
+            } else if (worstFirst.compare(term, heap.peek()) > 0) {
+                heap.poll();
+                heap.add(term);
+            }
+        }
+
+        // Drain the heap from worst to best and fill the result from the back
+        TrendingTerm[] trending = new TrendingTerm[heap.size()];
+        for (int i = trending.length - 1; i >= 0; i--) {
+            trending[i] = heap.poll();
+        }
+        return Arrays.asList(trending);
+    }
+
     // Method to search for a term
     public int searchWord(String term) {
         return searchTree.findTerm(term);
@@ -233,25 +282,9 @@ public class SearchFrequency {
 
     // Main method
     public static void main(String[] args) {
-        AVLTree searchTree = new AVLTree();
-
-        String directory = "./backend/data";
-        String filePath = directory + "/searchHistory.txt";
-
-        File file = new File(filePath);
-        if (!file.exists())
-            return;
-
-        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                for (String word : getWords(line)) {
-                    searchTree.insert(word.toLowerCase());
-                }
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+        // Load the counts the same way the application does, from the snapshot and the log tail
+        SearchFrequency searchFrequency = new SearchFrequency("./backend/data");
+        searchFrequency.init();
 
         Scanner input = new Scanner(System.in);
 
@@ -261,24 +294,12 @@ public class SearchFrequency {
             if (query.equalsIgnoreCase("exit")) {
                 break;
             }
-            searchTree.findTerm(query);
+            searchFrequency.searchWord(query);
         }
         input.close();
 
         System.out.println("Top Searches:");
-        searchTree.showTopSearches(-1);
+        searchFrequency.getSearchHistory();
+        searchFrequency.close();
     }
-
-    // Method to extract words from text
-    private static Set<String> getWords(String text) {
-        Set<String> words = new HashSet<>();
-        Pattern pattern = Pattern.compile("\\b\\w+\\b");
-
-        var matcher = pattern.matcher(text);
-        while (matcher.find()) {
-            words.add(matcher.group());
-        }
-
-        return words;
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,93 @@
+// Define the package for the search history snapshot service
+package com.example.backend.services;
+
+// Import segment serialization helpers
+import com.example.backend.utils.SegmentIO;
+
+// Import Java IO and NIO classes
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+// Import Java utility classes
+import java.util.HashMap;
+import java.util.Map;
+
+// Class holding the aggregated search counts and how much of the history log they already include
+public class SearchHistorySnapshot {
+    // Name of the snapshot file next to the history log
+    public static final String SNAPSHOT_FILE = "searchHistory.snapshot";
+    // Format identifiers written at the start of the file
+    private static final int SNAPSHOT_MAGIC = 0x53485354;
+    private static final int SNAPSHOT_VERSION = 1;
+
+    // Count per lowercased search term
+    private final Map<String, Integer> counts;
+    // Bytes at the start of the log that are already counted
+    private final long logOffset;
+
+    // Constructor
+    public SearchHistorySnapshot(Map<String, Integer> counts, long logOffset) {
+        this.counts = counts;
+        this.logOffset = logOffset;
+    }
+
+    // Method to get the counts
+    public Map<String, Integer> counts() {
+        return counts;
+    }
+
+    // Method to get the log offset the counts run up to
+    public long logOffset() {
+        return logOffset;
+    }
+
+    // Method to write counts durably, replacing any previous snapshot in one step
+    public static void write(Path file, Map<String, Integer> counts, long logOffset) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileOutputStream stream = new FileOutputStream(temporary.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream, 1 << 16))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeLong(logOffset);
+            out.writeInt(counts.size());
+            for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+                SegmentIO.writeString(out, entry.getKey());
+                out.writeInt(entry.getValue());
+            }
+            out.flush();
+            // The log may be truncated right after this, so the snapshot must be on disk first
+            stream.getFD().sync();
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Method to read a snapshot, or return null if it is missing or unreadable
+    public static SearchHistorySnapshot read(Path file) {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+            if (buffer.getInt() != SNAPSHOT_MAGIC || buffer.getInt() != SNAPSHOT_VERSION) {
+                System.out.println("Search history snapshot has an unknown format, replaying the whole log.");
+                return null;
+            }
+            long logOffset = buffer.getLong();
+            int size = buffer.getInt();
+            Map<String, Integer> counts = new HashMap<>(Math.max(16, size * 2));
+            for (int i = 0; i < size; i++) {
+                counts.put(SegmentIO.readString(buffer), buffer.getInt());
+            }
+            return new SearchHistorySnapshot(counts, logOffset);
+        } catch (IOException | BufferUnderflowException e) {
+            System.err.println("Failed to read search history snapshot: " + e.getMessage());
+            return null;
+        }
+    }
+}
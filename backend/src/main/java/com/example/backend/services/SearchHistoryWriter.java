@@ -0,0 +1,291 @@
+// Define the package for the search history writer service
+package com.example.backend.services;
+
+// Import Java IO and NIO classes
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+// Import Java utility and concurrency classes
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+// Class appending search history lines on a background thread, one write per batch of queued lines
+public class SearchHistoryWriter {
+    // Default number of lines that may wait in the queue
+    public static final int DEFAULT_CAPACITY = 8192;
+    // Fsync policy values: force after every batch, or never (leave it to the OS)
+    public static final long FSYNC_EVERY_BATCH = 0;
+    public static final long FSYNC_NEVER = -1;
+    // Default time between snapshots, after which the log is emptied
+    public static final long DEFAULT_SNAPSHOT_INTERVAL_MILLIS = 10 * 60 * 1000;
+    // Number of dropped lines between two reports of a full queue
+    private static final long DROP_REPORT_INTERVAL = 1000;
+
+    // Marker queued by close() so the writer thread knows everything before it has been queued
+    private static final String CLOSE = new String("close");
+
+    // File the lines are appended to
+    private final Path file;
+    // Snapshot of the counts, written periodically so the log only holds the lines after it
+    private final Path snapshotFile;
+    // Bounded queue between request threads and the writer thread
+    private final BlockingQueue<String> queue;
+    // Minimum time between fsyncs in milliseconds, or one of the FSYNC_ constants
+    private final long fsyncIntervalMillis;
+    // Time between snapshots in milliseconds, 0 or less to only snapshot on close
+    private final long snapshotIntervalMillis;
+    // Callback run on the writer thread for every line taken off the queue, whether or not it was written
+    private final Consumer<String> lineListener;
+
+    // Counts of everything written to the log or included in the snapshot, only used by the writer thread
+    private Map<String, Integer> persistedCounts = new HashMap<>();
+
+    // Writer thread, null until start()
+    private Thread thread;
+    // Flag set by close(), after which lines are no longer accepted
+    private volatile boolean closed = false;
+    // Lines dropped because the queue was full
+    private final AtomicLong droppedLines = new AtomicLong();
+
+    // Constructor
+    public SearchHistoryWriter(Path file, Path snapshotFile, int capacity, long fsyncIntervalMillis,
+            long snapshotIntervalMillis) {
+        this(file, snapshotFile, capacity, fsyncIntervalMillis, snapshotIntervalMillis, line -> {
+        });
+    }
+
+    // Constructor with a callback for every queued line, so work that needs a lock can stay off request threads
+    public SearchHistoryWriter(Path file, Path snapshotFile, int capacity, long fsyncIntervalMillis,
+            long snapshotIntervalMillis, Consumer<String> lineListener) {
+        this.file = file;
+        this.snapshotFile = snapshotFile;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.fsyncIntervalMillis = fsyncIntervalMillis;
+        this.snapshotIntervalMillis = snapshotIntervalMillis;
+        this.lineListener = lineListener;
+    }
+
+    // Method to start the writer thread from the counts already on disk; lines appended earlier stay queued
+    public synchronized void start(Map<String, Integer> countsOnDisk) {
+        if (thread != null) {
+            return;
+        }
+        persistedCounts = new HashMap<>(countsOnDisk);
+        thread = new Thread(this::writeLoop, "search-history-writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // Method to queue a line for appending, dropping it rather than waiting when the queue is full
+    public void append(String line) {
+        if (closed) {
+            return;
+        }
+        // A request thread never waits on disk; the in-memory counts already have the search
+        if (!queue.offer(line)) {
+            long dropped = droppedLines.incrementAndGet();
+            if (dropped % DROP_REPORT_INTERVAL == 1) {
+                System.err.println("Search history queue full, " + dropped + " lines dropped so far.");
+            }
+        }
+    }
+
+    // Method to get the number of lines dropped because the queue was full
+    public long droppedLines() {
+        return droppedLines.get();
+    }
+
+    // Method to write out every queued line, snapshot the counts and stop the writer thread
+    public void close() {
+        Thread writer;
+        synchronized (this) {
+            writer = thread;
+        }
+        if (writer == null || closed) {
+            return;
+        }
+        closed = true;
+        try {
+            queue.put(CLOSE);
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Helper method run by the writer thread: wait for lines, then write everything queued in one go
+    private void writeLoop() {
+        List<String> batch = new ArrayList<>();
+        long lastSync = System.currentTimeMillis();
+        long lastSnapshot = lastSync;
+        boolean dirty = false;
+        boolean closing = false;
+        // One channel for the life of the writer, opened with the first batch so no search means no file
+        FileChannel channel = null;
+
+        try {
+            while (!closing) {
+                // Wake up at least once per interval so a pending fsync or snapshot is not delayed by a quiet period
+                long wait = wakeUpMillis();
+                String first = wait > 0 ? queue.poll(wait, TimeUnit.MILLISECONDS) : queue.take();
+                try {
+                    if (first != null) {
+                        batch.add(first);
+                        queue.drainTo(batch);
+                        // Compare by identity so a user searching for "close" is not mistaken for the marker
+                        closing = batch.removeIf(line -> line == CLOSE);
+                        batch.forEach(this::notifyListener);
+                        if (channel == null && !batch.isEmpty()) {
+                            channel = open();
+                        }
+                        if (channel != null && write(channel, batch)) {
+                            dirty = true;
+                            for (String line : batch) {
+                                persistedCounts.merge(line.toLowerCase(), 1, Integer::sum);
+                            }
+                        }
+                    }
+
+                    long now = System.currentTimeMillis();
+                    boolean due = fsyncIntervalMillis == FSYNC_EVERY_BATCH
+                            || (fsyncIntervalMillis > 0 && now - lastSync >= fsyncIntervalMillis);
+                    if (dirty && (due || (closing && fsyncIntervalMillis != FSYNC_NEVER))) {
+                        force(channel);
+                        lastSync = now;
+                        dirty = false;
+                    }
+
+                    // Fold the log into a snapshot periodically and on close, so start-up replays only a short tail
+                    if (closing || (snapshotIntervalMillis > 0 && now - lastSnapshot >= snapshotIntervalMillis)) {
+                        compact(channel);
+                        lastSnapshot = now;
+                    }
+                } catch (RuntimeException e) {
+                    // Keep the thread alive, otherwise the queue would fill and every later line would be dropped
+                    System.err.println("Error in search history writer, batch skipped: " + e);
+                } finally {
+                    batch.clear();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            closeChannel(channel);
+        }
+    }
+
+    // Helper method to pass a line to the listener, so one failing line does not cost the rest of the batch
+    private void notifyListener(String line) {
+        try {
+            lineListener.accept(line);
+        } catch (RuntimeException e) {
+            System.err.println("Error handling search history line \"" + line + "\": " + e);
+        }
+    }
+
+    // Helper method to get the longest the writer thread may sleep, 0 meaning until the next line
+    private long wakeUpMillis() {
+        long wait = 0;
+        for (long interval : new long[] {fsyncIntervalMillis, snapshotIntervalMillis}) {
+            if (interval > 0 && (wait == 0 || interval < wait)) {
+                wait = interval;
+            }
+        }
+        return wait;
+    }
+
+    // Helper method to snapshot the counts and empty the log
+    private void compact(FileChannel channel) {
+        try {
+            long logSize = channel != null ? channel.size() : Files.exists(file) ? Files.size(file) : 0;
+            if (logSize == 0) {
+                return;
+            }
+            // 1. The snapshot covers the whole log; a crash now just skips the log's logSize bytes on start-up
+            SearchHistorySnapshot.write(snapshotFile, persistedCounts, logSize);
+            // 2. Empty the log; a crash now leaves a log shorter than the offset, which start-up reads as 0
+            if (channel != null) {
+                channel.truncate(0);
+                channel.force(false);
+            } else {
+                try (FileChannel log = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                    log.truncate(0);
+                    log.force(false);
+                }
+            }
+            // 3. Record that the counts now cover none of the (empty) log
+            SearchHistorySnapshot.write(snapshotFile, persistedCounts, 0);
+        } catch (IOException e) {
+            System.err.println("Error writing search history snapshot " + snapshotFile + ": " + e.getMessage());
+        }
+    }
+
+    // Helper method to open the file for appending, or null if it cannot be opened
+    private FileChannel open() {
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            return FileChannel.open(file, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            // The batch is dropped and the next one tries again
+            System.err.println("Error opening search history file " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Helper method to close the channel if it was opened
+    private void closeChannel(FileChannel channel) {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("Error closing search history file " + file + ": " + e.getMessage());
+        }
+    }
+
+    // Helper method to flush the file to disk, reporting rather than stopping on failure
+    private void force(FileChannel channel) {
+        try {
+            channel.force(false);
+        } catch (IOException e) {
+            System.err.println("Error syncing search history to " + file + ": " + e.getMessage());
+        }
+    }
+
+    // Helper method to write a batch of lines with a single channel write, returning whether it was written
+    private boolean write(FileChannel channel, List<String> lines) {
+        if (lines.isEmpty()) {
+            return false;
+        }
+        StringBuilder text = new StringBuilder();
+        for (String line : lines) {
+            text.append(line).append(System.lineSeparator());
+        }
+        ByteBuffer buffer = StandardCharsets.UTF_8.encode(text.toString());
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            // Drop the batch but keep draining, otherwise a full queue would block searches
+            System.err.println("Error writing search history to " + file + ": " + e.getMessage());
+            return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,144 @@
+// Define the package for the search index reloader service
+package com.example.backend.services;
+
+// Import Java IO and NIO classes
+import java.io.IOException;
+import java.nio.file.*;
+// Import Java utility and concurrency classes
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Class publishing the current Search snapshot and rebuilding it when the data directory changes
+public class SearchIndexReloader {
+    // Time to wait for more file events before rebuilding, so a scraper run triggers one rebuild
+    private static final long QUIET_PERIOD_MILLIS = 500;
+
+    // Directory containing the CSV files
+    private final String directory;
+    // Currently published, fully built snapshot
+    private final AtomicReference<Search> current = new AtomicReference<>(new Search());
+    // Callbacks run by the watcher after CSV files changed, for other services that follow the data
+    private final List<Runnable> changeListeners = new CopyOnWriteArrayList<>();
+
+    // Constructor
+    public SearchIndexReloader(String directory) {
+        this.directory = directory;
+    }
+
+    // Method to get the current snapshot; callers should read it once per request
+    public Search get() {
+        return current.get();
+    }
+
+    // Method to build a fresh snapshot and publish it once it is complete
+    public void reload() {
+        // Stamp the files before reading them, so changes made during the build make the segment stale
+        List<String> sources = Search.sourceStamps(directory);
+        // Reuse the on-disk segment when it still matches the CSV files
+        if (!loadSegment(sources)) {
+            Search next = new Search();
+            if (next.buildTrie(directory).clean(next)) {
+                publish(next, sources);
+            } else {
+                // A file failed to index, so the new snapshot would be missing rows the current one has
+                System.err.println("Search index rebuild failed, keeping the previous snapshot.");
+            }
+        }
+    }
+
+    // Method to publish the on-disk segment if it was built from sources, returning false if a build is needed
+    public boolean loadSegment(List<String> sources) {
+        Search loaded = Search.loadSegment(directory, sources);
+        if (loaded == null) {
+            return false;
+        }
+        current.set(loaded);
+        return true;
+    }
+
+    // Method to publish a snapshot that has been built, saving it as a segment when sources is not null
+    public void publish(Search built, List<String> sources) {
+        if (sources != null) {
+            built.writeSegment(directory, sources);
+        } else {
+            // Saving an incomplete build would make the next start load it as current
+            System.out.println("Index segment not written, some files failed to index.");
+        }
+        // Readers keep using the old snapshot until this single atomic swap
+        current.set(built);
+    }
+
+    // Method to register a callback run on the watcher thread after each settled batch of CSV changes
+    public void onChange(Runnable listener) {
+        changeListeners.add(listener);
+    }
+
+    // Method to start a background thread that rebuilds the index when CSV files change
+    public void watch() {
+        Path path = Paths.get(directory);
+        if (!Files.isDirectory(path)) {
+            System.out.println("Data directory " + directory + " not found, index hot reload disabled.");
+            return;
+        }
+
+        Thread watcher = new Thread(() -> watchLoop(path), "search-index-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    // Helper method to wait for CSV changes and rebuild after they settle
+    private void watchLoop(Path path) {
+        try (WatchService watchService = FileSystems.getDefault().newWatchService()) {
+            path.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key = watchService.take();
+                boolean changed = drainCsvEvents(key);
+
+                // Keep collecting events until the directory has been quiet for a moment
+                WatchKey more;
+                while ((more = watchService.poll(QUIET_PERIOD_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    changed |= drainCsvEvents(more);
+                }
+
+                if (changed) {
+                    System.out.println("Data directory changed, rebuilding the search index...");
+                    try {
+                        reload();
+                    } catch (RuntimeException e) {
+                        // Keep serving the previous snapshot if the rebuild fails
+                        e.printStackTrace();
+                    }
+                    for (Runnable listener : changeListeners) {
+                        try {
+                            listener.run();
+                        } catch (RuntimeException e) {
+                            e.printStackTrace();
+                        }
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            System.err.println("Error while watching " + directory + ": " + e.getMessage());
+        }
+    }
+
+    // Helper method to consume a key's events and report whether any touched a CSV file
+    private boolean drainCsvEvents(WatchKey key) {
+        boolean csvChanged = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            Object context = event.context();
+            // Overflow events have no file name, so treat them as a change
+            if (context == null || context.toString().endsWith(".csv")) {
+                csvChanged = true;
+            }
+        }
+        key.reset();
+        return csvChanged;
+    }
+}
@@ -1,50 +1,142 @@
 // Define the package for the spell check service
 package com.example.backend.services;
 
-// Import required utility classes
-import com.example.backend.utils.FileUtils;
-// Import CSV reader classes
-import com.opencsv.CSVReader;
-import com.opencsv.CSVReaderBuilder;
-
-// Import Java IO and utility classes
-import java.io.FileReader;
+// Import BK-tree index
+import com.example.backend.type.BkTree;
+// Import segment serialization helpers
+import com.example.backend.utils.SegmentIO;
+
+// Import Java IO and NIO classes
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+// Import Java utility classes
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
 
 // Class implementing spell checking functionality
-public class SpellCheck {
+public class SpellCheck implements IngestConsumer {
+
+    // Radius searched for suggestions, widened when even the closest word is further away
+    private static final int SUGGESTION_DISTANCE = 2;
+    // File name of the saved dictionary inside the data directory, with its marker and format version
+    public static final String STATE_FILE = "spell-check.seg";
+    private static final int STATE_MAGIC = 0x5350454c;
+    private static final int STATE_VERSION = 1;
+
+    // Map of dictionary words to their corpus frequency, in first-seen order
+    private final Map<String, Integer> dictionary = new LinkedHashMap<>();
+    // BK-tree over the same words, so corrections only visit a fraction of the dictionary
+    private final BkTree index = new BkTree(SpellCheck::computeEditDistance);
 
-    // List to store dictionary words
-    private final List<String> dictionary = new ArrayList<>();
+    // Per-thread DP rows reused across calls: previous-previous, previous and current row
+    private static final ThreadLocal<int[][]> SCRATCH = ThreadLocal.withInitial(() -> new int[3][32]);
+
+    // Flag enabling Damerau (adjacent transposition) edits when ranking corrections
+    private final boolean transpositions;
+
+    // Constructor for plain Levenshtein corrections
+    public SpellCheck() {
+        this(false);
+    }
+
+    // Constructor choosing whether a swap of two adjacent letters counts as one edit
+    public SpellCheck(boolean transpositions) {
+        this.transpositions = transpositions;
+    }
 
     // Method to compute edit distance between two words
     public static int computeEditDistance(String word1, String word2) {
+        return computeEditDistance(word1, word2, Integer.MAX_VALUE, false);
+    }
+
+    // Method to compute edit distance, returning threshold + 1 as soon as it must exceed threshold
+    public static int computeEditDistance(String word1, String word2, int threshold) {
+        return computeEditDistance(word1, word2, threshold, false);
+    }
+
+    // Method to compute Levenshtein or optimal-string-alignment distance within a threshold
+    public static int computeEditDistance(String word1, String word2, int threshold, boolean transpositions) {
         // Get lengths of both words
         int len1 = word1.length();
         int len2 = word2.length();
-        // Initialize DP table
-        int[][] dp = new int[len1 + 1][len2 + 1];
-
-        // Fill DP table
-        for (int i = 0; i <= len1; i++) {
-            for (int j = 0; j <= len2; j++) {
-                // Base cases
-                if (i == 0) {
-                    dp[i][j] = j;
-                } else if (j == 0) {
-                    dp[i][j] = i;
-                } else if (word1.charAt(i - 1) == word2.charAt(j - 1)) {
-                    dp[i][j] = dp[i - 1][j - 1];
+        if (threshold < 0) {
+            return 0;
+        }
+        // Value reported for anything over the threshold, saturating for unbounded calls
+        int exceeded = threshold == Integer.MAX_VALUE ? threshold : threshold + 1;
+        // The length difference alone is a lower bound on the distance
+        if (Math.abs(len1 - len2) > threshold) {
+            return exceeded;
+        }
+        // No distance can exceed the longer length, so clamp to keep the band finite
+        int limit = Math.min(threshold, Math.max(len1, len2));
+        int outside = limit + 1;
+
+        // Borrow this thread's rows, growing them if the word is longer than before
+        int[][] rows = SCRATCH.get();
+        if (rows[0].length < len2 + 2) {
+            rows = new int[3][Math.max(len2 + 2, rows[0].length * 2)];
+            SCRATCH.set(rows);
+        }
+        int[] before = rows[0];
+        int[] previous = rows[1];
+        int[] current = rows[2];
+
+        // Row 0: distance from the empty prefix, only the band [0, limit] matters
+        for (int j = 0; j <= len2; j++) {
+            previous[j] = j <= limit ? j : outside;
+        }
+        previous[len2 + 1] = outside;
+
+        for (int i = 1; i <= len1; i++) {
+            // Only cells within limit of the diagonal can stay under the threshold
+            int from = Math.max(1, i - limit);
+            int to = Math.min(len2, i + limit);
+            current[from - 1] = from == 1 ? i : outside;
+            int rowMin = current[from - 1];
+            char c1 = word1.charAt(i - 1);
+
+            for (int j = from; j <= to; j++) {
+                int value;
+                if (c1 == word2.charAt(j - 1)) {
+                    value = previous[j - 1];
                 } else {
                     // Minimum of insert, delete, or replace operations
-                    dp[i][j] = 1 + Math.min(dp[i - 1][j],
-                            Math.min(dp[i][j - 1], dp[i - 1][j - 1]));
+                    value = 1 + Math.min(previous[j], Math.min(current[j - 1], previous[j - 1]));
+                }
+                // Swapping two adjacent letters counts as a single edit
+                if (transpositions && i > 1 && j > 1 && c1 == word2.charAt(j - 2)
+                        && word1.charAt(i - 2) == word2.charAt(j - 1)) {
+                    value = Math.min(value, before[j - 2] + 1);
                 }
+                value = Math.min(value, outside);
+                current[j] = value;
+                rowMin = Math.min(rowMin, value);
             }
+            if (to < len2) {
+                current[to + 1] = outside;
+            }
+
+            // Row minimums never decrease, so once every cell is over the threshold we can stop
+            if (rowMin > limit) {
+                return exceeded;
+            }
+
+            // Rotate the rows
+            int[] spare = before;
+            before = previous;
+            previous = current;
+            current = spare;
         }
-        return dp[len1][len2];
+
+        int distance = previous[len2];
+        return distance > limit ? exceeded : distance;
     }
 
     // Method to build dictionary from CSV files
@@ -52,56 +144,213 @@ public class SpellCheck {
         // Directory containing CSV files
         String directoryPath = "./data";
         System.out.println("Building the dictionary from CSV files...");
+        IngestPipeline.run(directoryPath, List.of(this));
+    }
 
-        try {
-            // Read all files in directory
-            FileUtils.readFiles(directoryPath, path -> {
-                try (CSVReader csvReader = new CSVReaderBuilder(new FileReader(path.toString())).build()) {
-                    String[] row;
-                    // Read each row in CSV
-                    while ((row = csvReader.readNext()) != null) {
-                        // Process each cell in row
-                        for (String cell : row) {
-                            // Split cell content into words
-                            String[] words = cell.toLowerCase().split("\\W+");
-                            // Add unique words to dictionary
-                            for (String word : words) {
-                                if (!word.isEmpty() && !dictionary.contains(word)) {
-                                    dictionary.add(word);
-                                }
-                            }
-                        }
-                    }
-                } catch (Exception e) {
-                    e.printStackTrace();
-                }
-            });
-        } catch (Exception e) {
-            e.printStackTrace();
+    // Method to add the words of one parsed CSV file to the dictionary
+    @Override
+    public void accept(ParsedFile file) {
+        if (file.headers() == null) {
+            return;
+        }
+        addWords(file.headers());
+        // Read each row in CSV
+        for (String[] row : file.rows()) {
+            addWords(row);
         }
+    }
 
+    // Method to report the dictionary size after the last file
+    @Override
+    public void complete() {
         System.out.println("Dictionary built with " + dictionary.size() + " unique words.");
     }
 
-    // Method to find closest matching word
+    // Method to restore the dictionary and BK-tree saved from files with these stamps
+    @Override
+    public boolean loadState(String directory, List<String> sources) {
+        Path path = Paths.get(directory, STATE_FILE);
+        try {
+            ByteBuffer buffer = SegmentIO.mapCurrent(path, STATE_MAGIC, STATE_VERSION, sources);
+            if (buffer == null) {
+                return false;
+            }
+            // Words are saved in first-seen order, which is also how the BK-tree refers to them
+            int wordCount = buffer.getInt();
+            List<String> words = new ArrayList<>(wordCount);
+            for (int i = 0; i < wordCount; i++) {
+                String word = SegmentIO.readString(buffer);
+                words.add(word);
+                dictionary.put(word, buffer.getInt());
+            }
+            index.readFrom(buffer, words);
+            System.out.println("Dictionary loaded from " + path + " with " + dictionary.size() + " unique words.");
+            return true;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Failed to load the dictionary, rebuilding: " + e.getMessage());
+            dictionary.clear();
+            return false;
+        }
+    }
+
+    // Method to save the dictionary and the BK-tree's shape, so the next start neither reads the CSVs nor re-inserts
+    @Override
+    public void saveState(String directory, List<String> sources) {
+        SegmentIO.writeFile(Paths.get(directory, STATE_FILE), out -> {
+            SegmentIO.writeHeader(out, STATE_MAGIC, STATE_VERSION, sources);
+            out.writeInt(dictionary.size());
+            for (Map.Entry<String, Integer> entry : dictionary.entrySet()) {
+                SegmentIO.writeString(out, entry.getKey());
+                out.writeInt(entry.getValue());
+            }
+            index.writeTo(out);
+        });
+    }
+
+    // Helper method to add the words of each cell in a row
+    private void addWords(String[] row) {
+        // Process each cell in row
+        for (String cell : row) {
+            // Split cell content into words
+            String[] words = cell.toLowerCase().split("\\W+");
+            // Count every occurrence, indexing a word the first time it is seen
+            for (String word : words) {
+                if (!word.isEmpty() && dictionary.merge(word, 1, Integer::sum) == 1) {
+                    index.add(word);
+                }
+            }
+        }
+    }
+
+    // Method to find closest matching word, preferring the more frequent word on ties
     public String findClosestWord(String misspelledWord) {
+        List<String> suggestions = suggest(misspelledWord, 1);
+        String closestWord = suggestions.isEmpty() ? null : suggestions.get(0);
+        int minDistance = closestWord == null ? Integer.MAX_VALUE : distance(misspelledWord.toLowerCase(), closestWord);
+
+        System.out.println("Closest match: \"" + closestWord + "\", Edit Distance: " + minDistance);
+
+        return closestWord;
+    }
+
+    // Method to get up to limit "did you mean" corrections, closest first, then most frequent
+    public List<String> suggest(String misspelledWord, int limit) {
+        String query = misspelledWord.toLowerCase();
+        // Search the BK-tree with an unbounded radius that shrinks as closer words are found
+        String closestWord = index.nearest(query, Integer.MAX_VALUE);
+        if (closestWord == null || limit <= 0) {
+            return new ArrayList<>();
+        }
+        int radius = Math.max(SUGGESTION_DISTANCE, computeEditDistance(query, closestWord));
+        // Transpositions can only shorten distances, and by at most half, so search twice the radius
+        List<String> candidates = index.within(query, transpositions ? 2 * radius : radius);
+
+        // Score each candidate once, dropping those beyond the radius under the configured distance
+        Map<String, Integer> distances = new LinkedHashMap<>();
+        for (String candidate : candidates) {
+            int distance = computeEditDistance(query, candidate, radius, transpositions);
+            if (distance <= radius) {
+                distances.put(candidate, distance);
+            }
+        }
+
+        // Candidates are in insertion order, and the sort is stable, so that remains the last tie-break
+        List<String> ranked = new ArrayList<>(distances.keySet());
+        ranked.sort(Comparator.<String>comparingInt(distances::get)
+                .thenComparing(Comparator.<String>comparingInt(dictionary::get).reversed()));
+        return ranked.subList(0, Math.min(limit, ranked.size()));
+    }
+
+    // Method to get how often a word occurs in the corpus, 0 if it is not in the dictionary
+    public int frequency(String word) {
+        return dictionary.getOrDefault(word.toLowerCase(), 0);
+    }
+
+    // Helper method to compute the distance this spell checker ranks by
+    private int distance(String word1, String word2) {
+        return computeEditDistance(word1, word2, Integer.MAX_VALUE, transpositions);
+    }
+
+    // Method to find all dictionary words within a maximum edit distance
+    public List<String> findCandidates(String misspelledWord, int maxDistance) {
+        return index.within(misspelledWord.toLowerCase(), maxDistance);
+    }
+
+    // Method to find closest matching word by scanning the whole dictionary
+    public String findClosestWordByScan(String misspelledWord) {
         String closestWord = null;
         int minDistance = Integer.MAX_VALUE;
 
         // Compare against all words in dictionary
-        for (String word : dictionary) {
-            // Compute edit distance
-            int distance = computeEditDistance(misspelledWord.toLowerCase(), word);
+        for (String word : dictionary.keySet()) {
+            // Compute edit distance, giving up once it cannot beat the best so far
+            int distance = computeEditDistance(misspelledWord.toLowerCase(), word, minDistance - 1, transpositions);
             // Update closest match if needed
             if (distance < minDistance) {
                 minDistance = distance;
                 closestWord = word;
             }
         }
+        return closestWord;
+    }
 
-        System.out.println("Closest match: \"" + closestWord + "\", Edit Distance: " + minDistance);
+    // Method to compare BK-tree lookups against the dictionary scan on misspelled dictionary words
+    public void benchmark(int rounds) {
+        // Build queries by dropping one character from each dictionary word
+        List<String> queries = new ArrayList<>();
+        for (String word : dictionary.keySet()) {
+            if (word.length() > 3) {
+                queries.add(word.substring(0, word.length() / 2) + word.substring(word.length() / 2 + 1));
+            }
+        }
+        System.out.println("Benchmarking " + queries.size() + " queries over " + dictionary.size() + " words");
 
-        return closestWord;
+        // Check both methods agree before timing them
+        int mismatches = 0;
+        for (String query : queries) {
+            if (!findClosestWordByScan(query).equals(index.nearest(query, Integer.MAX_VALUE))) {
+                mismatches++;
+            }
+        }
+        System.out.println("Result mismatches: " + mismatches);
+
+        // Count edit distance computations per query, which does not depend on machine noise
+        long[] comparisons = new long[1];
+        BkTree counted = new BkTree((a, b) -> {
+            comparisons[0]++;
+            return computeEditDistance(a, b);
+        });
+        dictionary.keySet().forEach(counted::add);
+        comparisons[0] = 0;
+        for (String query : queries) {
+            counted.nearest(query, Integer.MAX_VALUE);
+        }
+        System.out.printf("Distance computations per query: scan %d, BK-tree nearest %.1f%n",
+                dictionary.size(), (double) comparisons[0] / queries.size());
+
+        for (int round = 0; round < rounds; round++) {
+            long start = System.nanoTime();
+            for (String query : queries) {
+                findClosestWordByScan(query);
+            }
+            long scanNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (String query : queries) {
+                index.nearest(query, Integer.MAX_VALUE);
+            }
+            long treeNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (String query : queries) {
+                index.within(query, 2);
+            }
+            long withinNanos = System.nanoTime() - start;
+
+            System.out.printf("Round %d: scan %.1f us/query, BK-tree nearest %.1f us/query, BK-tree within 2 %.1f us/query%n",
+                    round + 1, scanNanos / 1000.0 / queries.size(), treeNanos / 1000.0 / queries.size(),
+                    withinNanos / 1000.0 / queries.size());
+        }
     }
 
     // Main method to test functionality
@@ -111,6 +360,12 @@ public class SpellCheck {
         // Build dictionary
         autoCorrection.buildDictionary();
 
+        // Compare the BK-tree with the dictionary scan when run as "SpellCheck benchmark"
+        if (args.length > 0 && args[0].equals("benchmark")) {
+            autoCorrection.benchmark(5);
+            return;
+        }
+
         // Get user input
         System.out.print("Enter a misspelled word: ");
         try (Scanner scanner = new Scanner(System.in)) {
@@ -0,0 +1,71 @@
+// Define the package for the validation job
+package com.example.backend.services;
+
+// Import job status model
+import com.example.backend.model.ValidationJobStatus;
+
+// Import required Java classes
+import java.util.UUID;
+
+// Class tracking one background revalidation of the data directory
+public class ValidationJob {
+    // Lifecycle of a job
+    public enum State {
+        QUEUED, RUNNING, SUCCEEDED, FAILED
+    }
+
+    // Identifier clients poll the job by
+    private final String id = UUID.randomUUID().toString();
+    // Times in epoch milliseconds, 0 until reached
+    private final long submittedAt = System.currentTimeMillis();
+    private volatile long startedAt = 0;
+    private volatile long finishedAt = 0;
+    // Current state, written by the validation thread and read by request threads
+    private volatile State state = State.QUEUED;
+    // File counts, set once the job has finished
+    private volatile int filesChecked = 0;
+    private volatile int filesRevalidated = 0;
+    private volatile int filesFailed = 0;
+    private volatile int filesRemoved = 0;
+    // Failure message, null unless the job failed
+    private volatile String error = null;
+
+    // Method to get the job identifier
+    public String id() {
+        return id;
+    }
+
+    // Method to get the job's state
+    public State state() {
+        return state;
+    }
+
+    // Method to get a snapshot of the job for responses
+    public ValidationJobStatus status() {
+        return new ValidationJobStatus(id, state.name(), filesChecked, filesRevalidated, filesFailed,
+                filesRemoved, submittedAt, startedAt, finishedAt, error);
+    }
+
+    // Method to mark the job as started
+    void start() {
+        startedAt = System.currentTimeMillis();
+        state = State.RUNNING;
+    }
+
+    // Method to record the job's counts and mark it as finished
+    void succeed(int checked, int revalidated, int failed, int removed) {
+        filesChecked = checked;
+        filesRevalidated = revalidated;
+        filesFailed = failed;
+        filesRemoved = removed;
+        finishedAt = System.currentTimeMillis();
+        state = State.SUCCEEDED;
+    }
+
+    // Method to mark the job as failed
+    void fail(String message) {
+        error = message;
+        finishedAt = System.currentTimeMillis();
+        state = State.FAILED;
+    }
+}
@@ -0,0 +1,185 @@
+// Define the package for the BK-tree implementation
+package com.example.backend.type;
+
+// Import segment serialization helpers
+import com.example.backend.utils.SegmentIO;
+
+// Import required Java IO, NIO and utility classes
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.function.ToIntBiFunction;
+
+// Class implementing a Burkhard-Keller tree for nearest-word lookups under an edit distance metric
+public class BkTree {
+    // Class representing a node: a word plus children keyed by their distance to it
+    private static class BkNode {
+        // Word stored at this node
+        final String word;
+        // Insertion order, used to break distance ties the way a list scan would
+        final int order;
+        // Distances of the children to this word, parallel to children
+        int[] distances = new int[0];
+        // Child nodes
+        BkNode[] children = new BkNode[0];
+
+        BkNode(String word, int order) {
+            this.word = word;
+            this.order = order;
+        }
+
+        // Method to find the child at a distance, or null
+        BkNode child(int distance) {
+            for (int i = 0; i < distances.length; i++) {
+                if (distances[i] == distance) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        // Method to attach a new child at a distance
+        void addChild(int distance, BkNode node) {
+            int size = distances.length;
+            distances = Arrays.copyOf(distances, size + 1);
+            children = Arrays.copyOf(children, size + 1);
+            distances[size] = distance;
+            children[size] = node;
+        }
+    }
+
+    // Distance function, must satisfy the triangle inequality
+    private final ToIntBiFunction<String, String> distance;
+    // Root node of the tree
+    private BkNode root;
+    // Number of words in the tree
+    private int size = 0;
+
+    // Constructor
+    public BkTree(ToIntBiFunction<String, String> distance) {
+        this.distance = distance;
+    }
+
+    // Method to add a word, returning false if it was already present
+    public boolean add(String word) {
+        if (root == null) {
+            root = new BkNode(word, size++);
+            return true;
+        }
+
+        BkNode current = root;
+        while (true) {
+            int d = distance.applyAsInt(word, current.word);
+            if (d == 0) {
+                return false;
+            }
+            BkNode child = current.child(d);
+            if (child == null) {
+                current.addChild(d, new BkNode(word, size++));
+                return true;
+            }
+            current = child;
+        }
+    }
+
+    // Method to find the closest word within maxDistance, preferring earlier words on ties, or null
+    public String nearest(String query, int maxDistance) {
+        if (root == null) {
+            return null;
+        }
+
+        BkNode best = null;
+        int bestDistance = maxDistance;
+        Deque<BkNode> stack = new ArrayDeque<>();
+        stack.push(root);
+
+        while (!stack.isEmpty()) {
+            BkNode node = stack.pop();
+            int d = distance.applyAsInt(query, node.word);
+            if (d < bestDistance || (d == bestDistance && (best == null || node.order < best.order))) {
+                best = node;
+                bestDistance = d;
+            }
+
+            // Triangle inequality: only children with |edge - d| <= bestDistance can hold a closer word
+            long low = (long) d - bestDistance;
+            long high = (long) d + bestDistance;
+            for (int i = 0; i < node.distances.length; i++) {
+                if (node.distances[i] >= low && node.distances[i] <= high) {
+                    stack.push(node.children[i]);
+                }
+            }
+        }
+        return best == null ? null : best.word;
+    }
+
+    // Method to find every word within maxDistance of the query, in insertion order
+    public List<String> within(String query, int maxDistance) {
+        List<BkNode> matches = new ArrayList<>();
+        if (root != null) {
+            Deque<BkNode> stack = new ArrayDeque<>();
+            stack.push(root);
+            while (!stack.isEmpty()) {
+                BkNode node = stack.pop();
+                int d = distance.applyAsInt(query, node.word);
+                if (d <= maxDistance) {
+                    matches.add(node);
+                }
+                for (int i = 0; i < node.distances.length; i++) {
+                    if (Math.abs(node.distances[i] - d) <= maxDistance) {
+                        stack.push(node.children[i]);
+                    }
+                }
+            }
+        }
+
+        matches.sort(Comparator.comparingInt(node -> node.order));
+        List<String> words = new ArrayList<>(matches.size());
+        for (BkNode node : matches) {
+            words.add(node.word);
+        }
+        return words;
+    }
+
+    // Method to get the number of words in the tree
+    public int size() {
+        return size;
+    }
+
+    // Method to write the tree's shape to a segment in breadth-first order, naming each word by its insertion order
+    public void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(size);
+        if (root == null) {
+            return;
+        }
+        Deque<BkNode> queue = new ArrayDeque<>();
+        queue.add(root);
+        while (!queue.isEmpty()) {
+            BkNode node = queue.poll();
+            out.writeInt(node.order);
+            SegmentIO.writeInts(out, node.distances, node.distances.length);
+            queue.addAll(Arrays.asList(node.children));
+        }
+    }
+
+    // Method to load an empty tree from a segment written by writeTo, given every word in insertion order
+    public void readFrom(ByteBuffer buffer, List<String> words) {
+        BkNode[] nodes = new BkNode[buffer.getInt()];
+        for (int i = 0; i < nodes.length; i++) {
+            int order = buffer.getInt();
+            nodes[i] = new BkNode(words.get(order), order);
+            nodes[i].distances = SegmentIO.readInts(buffer);
+            nodes[i].children = new BkNode[nodes[i].distances.length];
+        }
+        // In breadth-first order each node's children are the next unclaimed nodes
+        int next = 1;
+        for (BkNode node : nodes) {
+            for (int i = 0; i < node.children.length; i++) {
+                node.children[i] = nodes[next++];
+            }
+        }
+        root = nodes.length == 0 ? null : nodes[0];
+        size = nodes.length;
+    }
+}
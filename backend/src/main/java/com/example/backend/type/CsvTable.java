@@ -0,0 +1,278 @@
+// Define the package for the memory mapped CSV table implementation
+package com.example.backend.type;
+
+// Import required Java classes
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+// Class indexing the fields of a memory mapped RFC 4180 CSV file, decoding a field to a String only when asked
+public class CsvTable {
+    // Largest file that can be mapped in one buffer
+    public static final long MAX_MAPPED_BYTES = Integer.MAX_VALUE;
+    // Flag set on a field whose slice holds doubled quotes or CRLF line ends that field() has to rewrite
+    private static final int ESCAPED = 1 << 31;
+
+    // Bytes of the file, read-only and positioned at 0
+    private final ByteBuffer buffer;
+    // Start offset of every field, in row order
+    private final int[] fieldStarts;
+    // End offset of every field (exclusive), with the ESCAPED flag in the top bit
+    private final int[] fieldEnds;
+    // Index of the first field of every row, plus one past the last field
+    private final int[] rowStarts;
+    // Byte offset where every row starts, plus the file size
+    private final int[] rowOffsets;
+    // Line number (1-based) every row starts on, which differs from the row number after multi-line cells
+    private final int[] rowLines;
+    // Number of rows, including the header row
+    private final int rowCount;
+
+    // Constructor used by parse once the offsets are known
+    private CsvTable(ByteBuffer buffer, int[] fieldStarts, int[] fieldEnds, int[] rowStarts, int[] rowOffsets,
+            int[] rowLines, int rowCount) {
+        this.buffer = buffer;
+        this.fieldStarts = fieldStarts;
+        this.fieldEnds = fieldEnds;
+        this.rowStarts = rowStarts;
+        this.rowOffsets = rowOffsets;
+        this.rowLines = rowLines;
+        this.rowCount = rowCount;
+    }
+
+    // Method to memory map a file and index its rows and fields
+    public static CsvTable open(Path path) throws IOException {
+        return parse(map(path));
+    }
+
+    // Method to memory map a whole file read-only, for callers that look at the bytes before parsing them
+    public static ByteBuffer map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > MAX_MAPPED_BYTES) {
+                throw new IOException("CSV file too large to map: " + path);
+            }
+            // The mapping stays valid after the channel is closed
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    // Method to index the rows and fields of CSV bytes in one pass, without copying them
+    public static CsvTable parse(ByteBuffer bytes) {
+        ByteBuffer buffer = bytes.slice().asReadOnlyBuffer();
+        int n = buffer.limit();
+        int[] fieldStarts = new int[64];
+        int[] fieldEnds = new int[64];
+        int[] rowStarts = new int[16];
+        int[] rowOffsets = new int[16];
+        int[] rowLines = new int[16];
+        int fields = 0;
+        int rows = 0;
+        int line = 1;
+
+        int i = 0;
+        while (i < n) {
+            // Start a row; a file ending in a line break has no empty row after it
+            if (rows + 1 >= rowStarts.length) {
+                rowStarts = Arrays.copyOf(rowStarts, rowStarts.length * 2);
+                rowOffsets = Arrays.copyOf(rowOffsets, rowStarts.length);
+                rowLines = Arrays.copyOf(rowLines, rowStarts.length);
+            }
+            rowOffsets[rows] = i;
+            rowLines[rows] = line;
+            rowStarts[rows++] = fields;
+            boolean rowEnded = false;
+            while (!rowEnded) {
+                if (fields == fieldStarts.length) {
+                    fieldStarts = Arrays.copyOf(fieldStarts, fields * 2);
+                    fieldEnds = Arrays.copyOf(fieldEnds, fields * 2);
+                }
+                int start = i;
+                int end;
+                boolean escaped = false;
+                if (i < n && buffer.get(i) == '"') {
+                    // Quoted field: runs to the next quote not followed by another, across line breaks
+                    start = ++i;
+                    while (i < n) {
+                        byte b = buffer.get(i);
+                        if (b == '"') {
+                            if (i + 1 < n && buffer.get(i + 1) == '"') {
+                                escaped = true;
+                                i += 2;
+                                continue;
+                            }
+                            break;
+                        }
+                        if (b == '\r') {
+                            escaped = true;
+                        } else if (b == '\n') {
+                            line++;
+                        }
+                        i++;
+                    }
+                    end = i;
+                    if (i < n) {
+                        i++;
+                    }
+                    // Be lenient about text between the closing quote and the delimiter and keep it in the field
+                    while (i < n && buffer.get(i) != ',' && buffer.get(i) != '\n' && buffer.get(i) != '\r') {
+                        i++;
+                        end = i;
+                    }
+                } else {
+                    while (i < n && buffer.get(i) != ',' && buffer.get(i) != '\n' && buffer.get(i) != '\r') {
+                        i++;
+                    }
+                    end = i;
+                }
+                fieldStarts[fields] = start;
+                fieldEnds[fields] = escaped ? end | ESCAPED : end;
+                fields++;
+
+                if (i >= n) {
+                    rowEnded = true;
+                } else if (buffer.get(i) == ',') {
+                    i++;
+                    if (i >= n) {
+                        // A trailing delimiter at the end of the file still opens one last empty field
+                        if (fields == fieldStarts.length) {
+                            fieldStarts = Arrays.copyOf(fieldStarts, fields * 2);
+                            fieldEnds = Arrays.copyOf(fieldEnds, fields * 2);
+                        }
+                        fieldStarts[fields] = n;
+                        fieldEnds[fields] = n;
+                        fields++;
+                        rowEnded = true;
+                    }
+                } else {
+                    // Line break: \n, \r\n or a lone \r
+                    if (buffer.get(i) == '\r' && i + 1 < n && buffer.get(i + 1) == '\n') {
+                        i++;
+                    }
+                    i++;
+                    line++;
+                    rowEnded = true;
+                }
+            }
+        }
+        rowStarts[rows] = fields;
+        rowOffsets[rows] = n;
+        return new CsvTable(buffer, fieldStarts, fieldEnds, rowStarts, rowOffsets, rowLines, rows);
+    }
+
+    // Method to get the number of rows, including the header row
+    public int rowCount() {
+        return rowCount;
+    }
+
+    // Method to get the number of fields in a row
+    public int fieldCount(int row) {
+        checkRow(row);
+        return rowStarts[row + 1] - rowStarts[row];
+    }
+
+    // Method to get the line number (1-based) a row starts on
+    public int lineNumber(int row) {
+        checkRow(row);
+        return rowLines[row];
+    }
+
+    // Method to decode a row as it appears in the file, without its line break
+    public String rowText(int row) {
+        checkRow(row);
+        int start = rowOffsets[row];
+        int end = rowOffsets[row + 1];
+        if (end > start && buffer.get(end - 1) == '\n') {
+            end--;
+        }
+        if (end > start && buffer.get(end - 1) == '\r') {
+            end--;
+        }
+        byte[] bytes = new byte[end - start];
+        buffer.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Method to get the offset of a field's bytes in buffer(), after any opening quote
+    public int fieldOffset(int row, int column) {
+        return fieldStarts[index(row, column)];
+    }
+
+    // Method to get the length of a field's raw bytes, which is 0 exactly when the field is empty
+    public int fieldLength(int row, int column) {
+        int field = index(row, column);
+        return (fieldEnds[field] & ~ESCAPED) - fieldStarts[field];
+    }
+
+    // Method to check whether a field's raw bytes still hold doubled quotes or CRLF line ends
+    public boolean isEscaped(int row, int column) {
+        return (fieldEnds[index(row, column)] & ESCAPED) != 0;
+    }
+
+    // Method to get a read-only view of the file's bytes for reading field slices directly
+    public ByteBuffer buffer() {
+        return buffer.duplicate();
+    }
+
+    // Method to decode one field, unescaping doubled quotes and turning CRLF into \n
+    public String field(int row, int column) {
+        int field = index(row, column);
+        int start = fieldStarts[field];
+        int end = fieldEnds[field] & ~ESCAPED;
+        if (start == end) {
+            return "";
+        }
+        byte[] bytes = new byte[end - start];
+        buffer.get(start, bytes);
+        if ((fieldEnds[field] & ESCAPED) == 0) {
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+        int length = 0;
+        for (int i = 0; i < bytes.length; i++) {
+            byte b = bytes[i];
+            if ((b == '"' && i + 1 < bytes.length && bytes[i + 1] == '"')
+                    || (b == '\r' && i + 1 < bytes.length && bytes[i + 1] == '\n')) {
+                // Keep the second byte of the pair
+                continue;
+            }
+            bytes[length++] = b;
+        }
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    // Method to decode every field of a row
+    public String[] row(int row) {
+        String[] fields = new String[fieldCount(row)];
+        for (int column = 0; column < fields.length; column++) {
+            fields[column] = field(row, column);
+        }
+        return fields;
+    }
+
+    // Method to decode the whole file as text, leniently like the rest of the ingest
+    public String text() {
+        byte[] bytes = new byte[buffer.limit()];
+        buffer.get(0, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Helper method to get the index of a field, checking row and column
+    private int index(int row, int column) {
+        checkRow(row);
+        int field = rowStarts[row] + column;
+        if (column < 0 || field >= rowStarts[row + 1]) {
+            throw new IndexOutOfBoundsException("Column " + column + " out of range for row " + row);
+        }
+        return field;
+    }
+
+    // Helper method to check a row index
+    private void checkRow(int row) {
+        if (row < 0 || row >= rowCount) {
+            throw new IndexOutOfBoundsException("Row " + row + " out of range for " + rowCount + " rows");
+        }
+    }
+}
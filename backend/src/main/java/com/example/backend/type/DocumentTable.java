@@ -0,0 +1,93 @@
+// Define the package for the document table implementation
+package com.example.backend.type;
+
+// Import segment serialization helpers
+import com.example.backend.utils.SegmentIO;
+
+// Import required Java IO and utility classes
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.*;
+
+// Class assigning dense int ordinals to documents and to the rows inside them
+public class DocumentTable {
+    // Map from document path to its ordinal
+    private final Map<String, Integer> ordinals = new HashMap<>();
+    // Document paths indexed by ordinal
+    private final List<String> documents = new ArrayList<>();
+    // Document ordinal of each row id
+    private int[] rowDocuments = new int[16];
+    // Line number of each row id inside its document
+    private int[] rowLines = new int[16];
+    // Number of rows registered so far
+    private int rowCount = 0;
+
+    // Method to get the ordinal of a document, assigning the next one if it is new
+    public int intern(String document) {
+        Integer ordinal = ordinals.get(document);
+        if (ordinal == null) {
+            ordinal = documents.size();
+            ordinals.put(document, ordinal);
+            documents.add(document);
+        }
+        return ordinal;
+    }
+
+    // Method to register a row and return its row id
+    public int addRow(int document, int lineNumber) {
+        if (rowCount == rowDocuments.length) {
+            rowDocuments = Arrays.copyOf(rowDocuments, Math.max(16, rowCount * 2));
+            rowLines = Arrays.copyOf(rowLines, Math.max(16, rowCount * 2));
+        }
+        rowDocuments[rowCount] = document;
+        rowLines[rowCount] = lineNumber;
+        return rowCount++;
+    }
+
+    // Method to get the document path for an ordinal
+    public String document(int ordinal) {
+        return documents.get(ordinal);
+    }
+
+    // Method to get the document ordinal a row belongs to
+    public int documentOf(int rowId) {
+        return rowDocuments[rowId];
+    }
+
+    // Method to get the line number of a row inside its document
+    public int lineOf(int rowId) {
+        return rowLines[rowId];
+    }
+
+    // Method to get the number of documents
+    public int documentCount() {
+        return documents.size();
+    }
+
+    // Method to get the number of rows
+    public int rowCount() {
+        return rowCount;
+    }
+
+    // Method to write the documents and row table to an index segment
+    public void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(documents.size());
+        for (String document : documents) {
+            SegmentIO.writeString(out, document);
+        }
+        SegmentIO.writeInts(out, rowDocuments, rowCount);
+        SegmentIO.writeInts(out, rowLines, rowCount);
+    }
+
+    // Method to load an empty table from a segment written by writeTo
+    public void readFrom(ByteBuffer buffer) {
+        int documentCount = buffer.getInt();
+        for (int i = 0; i < documentCount; i++) {
+            intern(SegmentIO.readString(buffer));
+        }
+        rowDocuments = SegmentIO.readInts(buffer);
+        rowLines = SegmentIO.readInts(buffer);
+        rowCount = rowDocuments.length;
+    }
+}
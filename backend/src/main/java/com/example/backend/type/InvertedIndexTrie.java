@@ -1,58 +1,218 @@
 // Define the package for the inverted index trie implementation
 package com.example.backend.type;
 
-// Import required Java collections
+// Import segment serialization helpers
+import com.example.backend.utils.SegmentIO;
+
+// Import required Java IO, NIO, concurrency and collections
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
 import java.util.*;
 
 // Class representing a node in the trie
 class TrieNode {
-    // Map of child nodes keyed by character
-    Map<Character, TrieNode> children = new HashMap<>();
+    // Shared empty arrays so leaf nodes do not allocate any child storage
+    static final char[] NO_LABELS = new char[0];
+    static final TrieNode[] NO_CHILDREN = new TrieNode[0];
+
+    // Sorted edge labels, labels[i] leads to children[i]
+    char[] labels = NO_LABELS;
+    // Child nodes parallel to the labels array
+    TrieNode[] children = NO_CHILDREN;
     // Flag indicating end of a word
     boolean isEndOfWord = false;
-    // Map storing document positions (document -> line numbers)
-    Map<String, HashSet<Integer>> documentPositions = new HashMap<>();
+    // Sorted row ids containing this word, only allocated on word ends of a trie built in memory
+    Postings postings;
+    // Position of this word's postings in the segment a loaded trie maps, or -1
+    int postingsOffset = -1;
+    // Positions of the children in the segment a loaded trie maps, whose children are decoded on first use
+    int[] childOffsets;
+    // Best completions below this node, highest weight first (filled by buildTopCompletions),
+    // only kept on nodes with many words below them
+    String[] topCompletions;
+    // Weights parallel to topCompletions
+    int[] topWeights;
+
+    // Method to return the child for a character, inserting it in sorted position if missing
+    TrieNode addChild(char c) {
+        int index = Arrays.binarySearch(labels, c);
+        if (index >= 0) {
+            return children[index];
+        }
+
+        // Grow both arrays by exactly one slot to keep nodes compact
+        int insertAt = -index - 1;
+        int size = labels.length;
+        char[] newLabels = new char[size + 1];
+        TrieNode[] newChildren = new TrieNode[size + 1];
+        System.arraycopy(labels, 0, newLabels, 0, insertAt);
+        System.arraycopy(children, 0, newChildren, 0, insertAt);
+        System.arraycopy(labels, insertAt, newLabels, insertAt + 1, size - insertAt);
+        System.arraycopy(children, insertAt, newChildren, insertAt + 1, size - insertAt);
+
+        TrieNode node = new TrieNode();
+        newLabels[insertAt] = c;
+        newChildren[insertAt] = node;
+        labels = newLabels;
+        children = newChildren;
+        return node;
+    }
 }
 
 // Class implementing an inverted index using a trie
 public class InvertedIndexTrie {
+    // Number of completions precomputed per node for ranked autocomplete
+    public static final int DEFAULT_TOP_COMPLETIONS = 10;
+    // Fewest words below a node for it to keep a precomputed list; smaller subtrees are ranked on request,
+    // which stays cheap and saves a list on most nodes
+    public static final int MIN_WORDS_FOR_TOP_COMPLETIONS = 64;
+
     // Root node of the trie
     private TrieNode root = new TrieNode();
+    // Access to child slots with release/acquire ordering, so a child decoded by one request is seen whole by others
+    private static final VarHandle CHILDREN = MethodHandles.arrayElementVarHandle(TrieNode[].class);
+    // BM25 saturation and length normalisation parameters
+    private static final double BM25_K1 = 1.2;
+    private static final double BM25_B = 0.75;
+    // Number of words indexed for each row id, the BM25 document length
+    private int[] rowLengths = new int[16];
+    // Highest row id indexed so far, plus one
+    private int rowSpan = 0;
+    // Total number of words indexed across all rows
+    private long totalLength = 0;
+    // Number of rows with at least one indexed word, the BM25 collection size
+    private int documentCount = 0;
+    // Mapped nodes a loaded trie reads its nodes and postings from, null for a trie built in memory
+    private ByteBuffer segment;
 
-    // Method to add a word to the trie
-    public void addWord(String word, String document, int lineNumber) {
+    // Method to add a word to the trie for a row id from the DocumentTable
+    public void addWord(String word, int rowId) {
         TrieNode current = root;
-        // Traverse each character in the word
+        // Traverse each character in the word, creating nodes as needed
         for (char c : word.toLowerCase().toCharArray()) {
-            // Create new node if character doesn't exist
-            current.children.putIfAbsent(c, new TrieNode());
-            current = current.children.get(c);
+            current = current.addChild(c);
         }
-        // Mark end of word and store document position
+        // Mark end of word and store the row id
         current.isEndOfWord = true;
-        current.documentPositions.putIfAbsent(document, new HashSet<>());
-        current.documentPositions.get(document).add(lineNumber);
+        if (current.postings == null) {
+            current.postings = new Postings();
+        }
+        current.postings.add(rowId);
+
+        // Track document statistics for relevance scoring
+        if (rowId >= rowLengths.length) {
+            rowLengths = Arrays.copyOf(rowLengths, Math.max(rowId + 1, rowLengths.length * 2));
+        }
+        if (rowLengths[rowId]++ == 0) {
+            documentCount++;
+        }
+        rowSpan = Math.max(rowSpan, rowId + 1);
+        totalLength++;
+    }
+
+    // Method to rank candidate rows by BM25 over the query terms and return the best k, best first
+    public int[] rankBm25(List<String> terms, Postings candidates, int k) {
+        if (k <= 0) {
+            return new int[0];
+        }
+        int candidateCount = candidates.size();
+        double[] scores = new double[candidateCount];
+        double averageLength = documentCount == 0 ? 1 : (double) totalLength / documentCount;
+
+        // Add each term's contribution by walking its postings alongside the sorted candidates
+        for (String term : new LinkedHashSet<>(terms)) {
+            Postings postings = search(term);
+            if (postings.isEmpty()) {
+                continue;
+            }
+            double idf = Math.log(1 + (documentCount - postings.size() + 0.5) / (postings.size() + 0.5));
+            int j = 0;
+            for (int i = 0; i < candidateCount && j < postings.size(); i++) {
+                int rowId = candidates.get(i);
+                while (j < postings.size() && postings.get(j) < rowId) {
+                    j++;
+                }
+                if (j < postings.size() && postings.get(j) == rowId) {
+                    int tf = postings.frequency(j);
+                    double norm = 1 - BM25_B + BM25_B * rowLengths[rowId] / averageLength;
+                    scores[i] += idf * tf * (BM25_K1 + 1) / (tf + BM25_K1 * norm);
+                }
+            }
+        }
+
+        // Keep the k best candidates in a min-heap ordered by score, then by row id
+        Comparator<Integer> worstFirst = (a, b) -> scores[a] != scores[b]
+                ? Double.compare(scores[a], scores[b])
+                : Integer.compare(candidates.get(b), candidates.get(a));
+        PriorityQueue<Integer> heap = new PriorityQueue<>(Math.max(1, Math.min(k, candidateCount)), worstFirst);
+        for (int i = 0; i < candidateCount; i++) {
+            if (heap.size() < k) {
+                heap.add(i);
+            } else if (worstFirst.compare(i, heap.peek()) > 0) {
+                heap.poll();
+                heap.add(i);
+            }
+        }
+
+        // Drain the heap from worst to best and fill the result from the back
+        int[] ranked = new int[heap.size()];
+        for (int i = ranked.length - 1; i >= 0; i--) {
+            ranked[i] = candidates.get(heap.poll());
+        }
+        return ranked;
     }
 
     // Method to search for a query in the trie
-    public Map<String, HashSet<Integer>> search(String query) {
+    public Postings search(String query) {
         TrieNode current = root;
         // Traverse each character in the query
         for (char c : query.toLowerCase().toCharArray()) {
-            if (!current.children.containsKey(c)) {
+            current = child(current, c);
+            if (current == null) {
                 System.out.println("No match for query: " + query);
-                return new HashMap<>();
+                return Postings.EMPTY;
             }
-            current = current.children.get(c);
         }
 
         // Return results if query matches a complete word
         if (current.isEndOfWord) {
-            return current.documentPositions;
+            return postings(current);
         }
 
         System.out.println("Query found as prefix but not a complete term: " + query);
-        return new HashMap<>();
+        return Postings.EMPTY;
+    }
+
+    // Helper method to get a node's child at an edge index, decoding it from the mapped segment on first use
+    private TrieNode child(TrieNode node, int index) {
+        if (node.childOffsets == null) {
+            return node.children[index];
+        }
+        TrieNode child = (TrieNode) CHILDREN.getAcquire(node.children, index);
+        if (child == null) {
+            // Two requests may decode the same child at once; both copies are complete and equal
+            child = readNode(node.childOffsets[index]);
+            CHILDREN.setRelease(node.children, index, child);
+        }
+        return child;
+    }
+
+    // Helper method to follow the edge labelled c, or return null
+    private TrieNode child(TrieNode node, char c) {
+        int index = Arrays.binarySearch(node.labels, c);
+        return index >= 0 ? child(node, index) : null;
+    }
+
+    // Helper method to get a word end's postings, decoding them from the mapped segment for a loaded trie
+    private Postings postings(TrieNode node) {
+        if (node.postings != null) {
+            return node.postings;
+        }
+        return Postings.readFrom(segment.duplicate().position(node.postingsOffset));
     }
 
     // Method to find autocomplete suggestions for a prefix
@@ -60,10 +220,10 @@ public class InvertedIndexTrie {
         TrieNode current = root;
         // Navigate to the prefix node
         for (char c : prefix.toCharArray()) {
-            if (!current.children.containsKey(c)) {
+            current = child(current, c);
+            if (current == null) {
                 return Collections.emptyList();
             }
-            current = current.children.get(c);
         }
 
         // Collect all words starting with the prefix
@@ -72,31 +232,193 @@ public class InvertedIndexTrie {
         return suggestions;
     }
 
+    // Method to find the highest weighted completions for a prefix, at most limit of them,
+    // and never more than the precomputed DEFAULT_TOP_COMPLETIONS below a large subtree
+    public List<String> autocomplete(String prefix, int limit) {
+        TrieNode current = root;
+        // Navigate to the prefix node
+        for (char c : prefix.toLowerCase().toCharArray()) {
+            current = child(current, c);
+            if (current == null) {
+                return Collections.emptyList();
+            }
+        }
+
+        // Serve a large subtree from its precomputed list, read-only since it is shared by every request
+        if (current.topCompletions != null) {
+            int size = Math.min(limit, current.topCompletions.length);
+            return Collections.unmodifiableList(Arrays.asList(current.topCompletions).subList(0, size));
+        }
+
+        // Only subtrees under MIN_WORDS_FOR_TOP_COMPLETIONS words have no list, so ranking them stays cheap
+        List<String> suggestions = new ArrayList<>();
+        collectAllWords(current, prefix.toLowerCase(), suggestions);
+        Map<String, Integer> weights = new HashMap<>();
+        for (String word : suggestions) {
+            weights.put(word, search(word).size());
+        }
+        suggestions.sort(Comparator.comparingInt((String word) -> -weights.get(word))
+                .thenComparing(Comparator.naturalOrder()));
+        return suggestions.subList(0, Math.min(limit, suggestions.size()));
+    }
+
+    // Method to find completions of words starting within maxEdits edits of the prefix, closest then heaviest first
+    public List<String> fuzzyAutocomplete(String prefix, int maxEdits, int limit) {
+        String query = prefix.toLowerCase();
+        // With as many edits as the prefix has characters the root itself matches, and with it every word
+        int edits = Math.min(maxEdits, Math.max(0, query.length() - 1));
+        // Row 0 of the Levenshtein automaton: the empty path is i edits from the first i query characters
+        int[] row = new int[query.length() + 1];
+        for (int i = 0; i <= query.length(); i++) {
+            row[i] = i;
+        }
+
+        // Best distance per completion and its weight, filled while walking the trie
+        Map<String, Integer> distances = new HashMap<>();
+        Map<String, Integer> weights = new HashMap<>();
+        fuzzyWalk(root, new StringBuilder(), query, row, edits, distances, weights);
+
+        List<String> suggestions = new ArrayList<>(distances.keySet());
+        suggestions.sort(Comparator.comparingInt((String word) -> distances.get(word))
+                .thenComparingInt(word -> -weights.get(word))
+                .thenComparing(Comparator.naturalOrder()));
+        return suggestions.subList(0, Math.min(limit, suggestions.size()));
+    }
+
+    // Helper method to advance the automaton along each edge, pruning once every state exceeds maxEdits
+    private void fuzzyWalk(TrieNode node, StringBuilder path, String query, int[] row, int maxEdits,
+            Map<String, Integer> distances, Map<String, Integer> weights) {
+        // The path is within maxEdits of the whole query, so every word below it is a candidate
+        int distance = row[query.length()];
+        if (distance <= maxEdits) {
+            addCompletions(node, path, distance, distances, weights);
+        }
+
+        for (int i = 0; i < node.labels.length; i++) {
+            char c = node.labels[i];
+            int[] next = new int[row.length];
+            next[0] = row[0] + 1;
+            int rowMin = next[0];
+            for (int j = 1; j < row.length; j++) {
+                int cost = query.charAt(j - 1) == c ? 0 : 1;
+                next[j] = Math.min(Math.min(next[j - 1] + 1, row[j] + 1), row[j - 1] + cost);
+                rowMin = Math.min(rowMin, next[j]);
+            }
+            // Longer paths can only add edits, so a row entirely past maxEdits ends this branch
+            if (rowMin <= maxEdits) {
+                path.append(c);
+                fuzzyWalk(child(node, i), path, query, next, maxEdits, distances, weights);
+                path.setLength(path.length() - 1);
+            }
+        }
+    }
+
+    // Helper method to record a matched node's completions at a distance, keeping each word's best distance
+    private void addCompletions(TrieNode node, StringBuilder path, int distance,
+            Map<String, Integer> distances, Map<String, Integer> weights) {
+        if (node.topCompletions != null) {
+            // The precomputed list holds the best words of this large subtree, as many as a capped limit asks for
+            for (int i = 0; i < node.topCompletions.length; i++) {
+                distances.merge(node.topCompletions[i], distance, Math::min);
+                weights.put(node.topCompletions[i], node.topWeights[i]);
+            }
+            return;
+        }
+
+        // Only subtrees under MIN_WORDS_FOR_TOP_COMPLETIONS words have no list, so walking them stays cheap
+        List<String> words = new ArrayList<>();
+        collectAllWords(node, path.toString(), words);
+        for (String word : words) {
+            distances.merge(word, distance, Math::min);
+            weights.computeIfAbsent(word, w -> search(w).size());
+        }
+    }
+
+    // Method to precompute the top k completions for every node with at least MIN_WORDS_FOR_TOP_COMPLETIONS words
+    public void buildTopCompletions(int k) {
+        buildTopCompletions(root, new StringBuilder(), k);
+    }
+
+    // Class holding a subtree's best completions while they are merged upwards
+    private static class TopList {
+        final String[] words;
+        final int[] weights;
+        // Number of words in the subtree
+        final int wordCount;
+
+        TopList(String[] words, int[] weights, int wordCount) {
+            this.words = words;
+            this.weights = weights;
+            this.wordCount = wordCount;
+        }
+    }
+
+    // Helper method to compute a node's top list from its own word and its children's lists,
+    // keeping it on the node only when the subtree is large
+    private TopList buildTopCompletions(TrieNode node, StringBuilder prefix, int k) {
+        // Candidates are this node's word plus the top lists of each child
+        List<String> words = new ArrayList<>();
+        List<Integer> weights = new ArrayList<>();
+        int wordCount = 0;
+        if (node.isEndOfWord) {
+            words.add(prefix.toString());
+            weights.add(postings(node).size());
+            wordCount++;
+        }
+        for (int i = 0; i < node.labels.length; i++) {
+            prefix.append(node.labels[i]);
+            TopList child = buildTopCompletions(child(node, i), prefix, k);
+            prefix.setLength(prefix.length() - 1);
+            for (int j = 0; j < child.words.length; j++) {
+                words.add(child.words[j]);
+                weights.add(child.weights[j]);
+            }
+            wordCount += child.wordCount;
+        }
+
+        // Keep the k heaviest candidates, breaking ties alphabetically
+        Integer[] order = new Integer[words.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> weights.get(a).equals(weights.get(b))
+                ? words.get(a).compareTo(words.get(b))
+                : Integer.compare(weights.get(b), weights.get(a)));
+        int size = Math.min(k, order.length);
+        TopList top = new TopList(new String[size], new int[size], wordCount);
+        for (int i = 0; i < size; i++) {
+            top.words[i] = words.get(order[i]);
+            top.weights[i] = weights.get(order[i]);
+        }
+
+        boolean keep = wordCount >= MIN_WORDS_FOR_TOP_COMPLETIONS;
+        node.topCompletions = keep ? top.words : null;
+        node.topWeights = keep ? top.weights : null;
+        return top;
+    }
+
     // Helper method to recursively collect all words from a node
     private void collectAllWords(TrieNode node, String prefix, List<String> suggestions) {
         // Add word if current node marks end of a word
         if (node.isEndOfWord) {
             suggestions.add(prefix);
         }
-        // Recursively collect words from child nodes
-        for (Map.Entry<Character, TrieNode> entry : node.children.entrySet()) {
-            collectAllWords(entry.getValue(), prefix + entry.getKey(), suggestions);
+        // Recursively collect words from child nodes in label order
+        for (int i = 0; i < node.labels.length; i++) {
+            collectAllWords(child(node, i), prefix + node.labels[i], suggestions);
         }
     }
 
     // Method to search for numeric values within a range
-    public Map<String, HashSet<Integer>> searchRange(String key, double minValue, double maxValue) {
-        // Initialize results map
-        Map<String, HashSet<Integer>> results = new HashMap<>();
-
+    public Postings searchRange(String key, double minValue, double maxValue) {
         TrieNode current = root;
         String searchPrefix = key.toLowerCase() + ":";
         // Navigate to the prefix node
         for (char c : searchPrefix.toCharArray()) {
-            if (!current.children.containsKey(c)) {
-                return results;
+            current = child(current, c);
+            if (current == null) {
+                return Postings.EMPTY;
             }
-            current = current.children.get(c);
         }
 
         // Collect all terms with the given prefix
@@ -104,29 +426,164 @@ public class InvertedIndexTrie {
         collectAllWords(current, searchPrefix, matchedTerms);
 
         // Check each matched term against the value range
+        List<Postings> matches = new ArrayList<>();
         for (String term : matchedTerms) {
             String[] parts = term.split(":");
             if (parts.length == 2) {
                 try {
                     double termValue = Double.parseDouble(parts[1]);
-                    // Add to results if value is within range
+                    // Keep the postings if value is within range
                     if (termValue >= minValue && termValue <= maxValue) {
-                        Map<String, HashSet<Integer>> termResults = search(term);
-                        // Merge results into main results map
-                        for (Map.Entry<String, HashSet<Integer>> entry : termResults.entrySet()) {
-                            results.merge(entry.getKey(),
-                                    new HashSet<>(entry.getValue()),
-                                    (oldSet, newSet) -> {
-                                        oldSet.addAll(newSet);
-                                        return oldSet;
-                                    });
-                        }
+                        matches.add(search(term));
                     }
                 } catch (NumberFormatException e) {
                     // Skip non-numeric terms
                 }
             }
         }
-        return results;
+        // Union all matching postings in one pass
+        return Postings.unionAll(matches);
+    }
+
+    // Method to write every node, its postings and its completion list to an index segment
+    public void writeTo(DataOutputStream out) throws IOException {
+        // Nodes are written children first, so each node can record where its children are
+        ByteArrayOutputStream region = new ByteArrayOutputStream();
+        int rootOffset = writeNode(root, new DataOutputStream(region));
+        out.writeInt(region.size());
+        region.writeTo(out);
+        out.writeInt(rootOffset);
+        SegmentIO.writeInts(out, rowLengths, rowSpan);
+        out.writeInt(documentCount);
+        out.writeLong(totalLength);
     }
-}
\ No newline at end of file
+
+    // Helper method to write a node's children and then the node, returning the node's position
+    private int writeNode(TrieNode node, DataOutputStream out) throws IOException {
+        int[] childOffsets = new int[node.labels.length];
+        for (int i = 0; i < node.labels.length; i++) {
+            childOffsets[i] = writeNode(child(node, i), out);
+        }
+
+        int offset = out.size();
+        out.writeBoolean(node.isEndOfWord);
+        if (node.isEndOfWord) {
+            postings(node).writeTo(out);
+        }
+        out.writeBoolean(node.topCompletions != null);
+        if (node.topCompletions != null) {
+            out.writeInt(node.topCompletions.length);
+            for (String word : node.topCompletions) {
+                SegmentIO.writeString(out, word);
+            }
+            SegmentIO.writeInts(out, node.topWeights, node.topWeights.length);
+        }
+        out.writeInt(node.labels.length);
+        for (int i = 0; i < node.labels.length; i++) {
+            out.writeChar(node.labels[i]);
+        }
+        for (int childOffset : childOffsets) {
+            out.writeInt(childOffset);
+        }
+        return offset;
+    }
+
+    // Method to replace the contents of this trie with a segment written by writeTo,
+    // leaving nodes and postings in the mapped buffer until a lookup reaches them
+    public void readFrom(ByteBuffer buffer) {
+        segment = SegmentIO.sliceBytes(buffer);
+        root = readNode(buffer.getInt());
+        rowLengths = SegmentIO.readInts(buffer);
+        rowSpan = rowLengths.length;
+        documentCount = buffer.getInt();
+        totalLength = buffer.getLong();
+    }
+
+    // Helper method to decode one node of the mapped segment, without its children
+    private TrieNode readNode(int offset) {
+        ByteBuffer buffer = segment.duplicate().position(offset);
+        TrieNode node = new TrieNode();
+        node.isEndOfWord = buffer.get() != 0;
+        if (node.isEndOfWord) {
+            node.postingsOffset = buffer.position();
+            Postings.skip(buffer);
+        }
+        if (buffer.get() != 0) {
+            node.topCompletions = new String[buffer.getInt()];
+            for (int i = 0; i < node.topCompletions.length; i++) {
+                node.topCompletions[i] = SegmentIO.readString(buffer);
+            }
+            node.topWeights = SegmentIO.readInts(buffer);
+        }
+        int childCount = buffer.getInt();
+        if (childCount > 0) {
+            // Labels were written in sorted order, so the arrays can be filled directly
+            node.labels = new char[childCount];
+            for (int i = 0; i < childCount; i++) {
+                node.labels[i] = buffer.getChar();
+            }
+            node.childOffsets = new int[childCount];
+            for (int i = 0; i < childCount; i++) {
+                node.childOffsets[i] = buffer.getInt();
+            }
+            node.children = new TrieNode[childCount];
+        }
+        return node;
+    }
+
+    // Method to print the estimated node memory of this trie against the previous HashMap layout
+    public void printFootprint() {
+        long[] totals = new long[4];
+        estimateFootprint(root, totals, Collections.newSetFromMap(new IdentityHashMap<>()));
+        System.out.println("Trie nodes: " + totals[0]);
+        System.out.println("Estimated node bytes (sorted char[] edges): " + totals[1]);
+        System.out.println("  of which precomputed completion lists: " + totals[3]);
+        System.out.println("Estimated node bytes (HashMap<Character, TrieNode> edges): " + totals[2]);
+    }
+
+    // Helper method to accumulate node count, compact bytes, HashMap-layout bytes and completion list bytes
+    private void estimateFootprint(TrieNode node, long[] totals, Set<String> countedWords) {
+        int childCount = node.labels.length;
+        totals[0]++;
+
+        // Compact layout: header + 3 edge array refs + postings ref + 2 completion list refs + postings offset
+        // + flag, plus the two edge arrays when used
+        long compact = align(12 + 6 * 4 + 4 + 1);
+        if (childCount > 0) {
+            compact += align(16 + 2L * childCount) + align(16 + 4L * childCount);
+        }
+        // Completion lists: the two arrays, and each word String the first time any list holds it
+        long lists = 0;
+        if (node.topCompletions != null) {
+            lists += align(16 + 4L * node.topCompletions.length) + align(16 + 4L * node.topWeights.length);
+            for (String word : node.topCompletions) {
+                if (countedWords.add(word)) {
+                    lists += 24 + align(16 + word.length());
+                }
+            }
+        }
+        totals[1] += compact + lists;
+        totals[3] += lists;
+
+        // Previous layout: node + two HashMaps always allocated, children table sized by load factor
+        long legacy = 24 + 48 + 48;
+        if (childCount > 0) {
+            int capacity = 16;
+            while (childCount > capacity * 0.75) {
+                capacity <<= 1;
+            }
+            // Table array plus one 32 byte entry per child (ASCII Character boxes are cached)
+            legacy += align(16 + 4L * capacity) + 32L * childCount;
+        }
+        totals[2] += legacy;
+
+        for (int i = 0; i < childCount; i++) {
+            estimateFootprint(child(node, i), totals, countedWords);
+        }
+    }
+
+    // Helper method to round a size up to the 8 byte object alignment
+    private static long align(long size) {
+        return (size + 7) & ~7L;
+    }
+}
@@ -0,0 +1,153 @@
+// Define the package for the numeric range index implementation
+package com.example.backend.type;
+
+// Import segment serialization helpers
+import com.example.backend.utils.SegmentIO;
+
+// Import required Java IO and utility classes
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+// Class indexing one numeric field as parallel sorted value and row id arrays
+public class NumericRangeIndex {
+    // Field values, sorted ascending once the index is frozen, with equal values ordered by row id
+    private double[] values = new double[16];
+    // Row ids parallel to the values array
+    private int[] rowIds = new int[16];
+    // Number of entries in the index
+    private int size = 0;
+    // Flag indicating the arrays are sorted and ready for queries
+    private boolean frozen = false;
+
+    // Method to add a value for a row while the index is being built
+    public void add(double value, int rowId) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, Math.max(16, size * 2));
+            rowIds = Arrays.copyOf(rowIds, Math.max(16, size * 2));
+        }
+        values[size] = value;
+        rowIds[size] = rowId;
+        size++;
+        frozen = false;
+    }
+
+    // Method to parse a cell value and add it if it is numeric
+    public boolean addIfNumeric(String value, int rowId) {
+        try {
+            add(Double.parseDouble(value), rowId);
+            return true;
+        } catch (NumberFormatException e) {
+            // Skip non-numeric values such as "N/A"
+            return false;
+        }
+    }
+
+    // Method to sort the entries by value so ranges can be binary searched
+    public void freeze() {
+        if (frozen) {
+            return;
+        }
+
+        // Sort positions by value then row id, then rewrite both arrays in that order
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> values[a] != values[b]
+                ? Double.compare(values[a], values[b])
+                : Integer.compare(rowIds[a], rowIds[b]));
+
+        double[] sortedValues = new double[size];
+        int[] sortedRowIds = new int[size];
+        for (int i = 0; i < size; i++) {
+            sortedValues[i] = values[order[i]];
+            sortedRowIds[i] = rowIds[order[i]];
+        }
+        values = sortedValues;
+        rowIds = sortedRowIds;
+        frozen = true;
+    }
+
+    // Method to find all rows whose value lies in [minValue, maxValue], in O(log n + k) when they share one value
+    // and O(log n + k log k) when the k matches span several values and their row ids have to be sorted
+    public Postings range(double minValue, double maxValue) {
+        freeze();
+        int from = lowerBound(minValue);
+        int to = upperBound(maxValue);
+        if (from >= to) {
+            return Postings.EMPTY;
+        }
+
+        // Matching entries are contiguous; row ids are already sorted within one value, so only sort across values
+        int[] matches = Arrays.copyOfRange(rowIds, from, to);
+        if (!isSorted(matches)) {
+            Arrays.sort(matches);
+        }
+        return Postings.fromSorted(matches);
+    }
+
+    // Helper method to check whether row ids are in ascending order
+    private static boolean isSorted(int[] rowIds) {
+        for (int i = 1; i < rowIds.length; i++) {
+            if (rowIds[i - 1] > rowIds[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Helper method to find the first position with a value >= key
+    private int lowerBound(double key) {
+        int low = 0, high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (values[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Helper method to find the first position with a value > key
+    private int upperBound(double key) {
+        int low = 0, high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (values[mid] <= key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Method to get the number of indexed values
+    public int size() {
+        return size;
+    }
+
+    // Method to write the sorted entries to an index segment
+    public void writeTo(DataOutputStream out) throws IOException {
+        freeze();
+        out.writeInt(size);
+        for (int i = 0; i < size; i++) {
+            out.writeDouble(values[i]);
+        }
+        SegmentIO.writeInts(out, rowIds, size);
+    }
+
+    // Method to load an empty index from a segment written by writeTo
+    public void readFrom(ByteBuffer buffer) {
+        size = buffer.getInt();
+        values = new double[size];
+        buffer.asDoubleBuffer().get(values);
+        buffer.position(buffer.position() + size * Double.BYTES);
+        rowIds = SegmentIO.readInts(buffer);
+        frozen = true;
+    }
+}
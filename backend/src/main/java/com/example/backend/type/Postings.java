@@ -0,0 +1,295 @@
+// Define the package for the postings list implementation
+package com.example.backend.type;
+
+// Import segment serialization helpers
+import com.example.backend.utils.SegmentIO;
+
+// Import required Java IO and utility classes
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.*;
+
+// Class holding a sorted, duplicate-free list of row ids for one term
+public class Postings {
+    // Shared empty postings list
+    public static final Postings EMPTY = new Postings(new int[0], 0);
+
+    // Sorted row ids, only the first size entries are used
+    private int[] rows;
+    // Number of row ids in the list
+    private int size;
+    // Occurrences of the term in each row, parallel to rows; null while every count is 1
+    private int[] frequencies;
+
+    // Constructor for an empty list that is filled with add()
+    public Postings() {
+        this(new int[2], 0);
+    }
+
+    // Constructor wrapping an already sorted array
+    private Postings(int[] rows, int size) {
+        this.rows = rows;
+        this.size = size;
+    }
+
+    // Method to wrap row ids sorted ascending without copying them, dropping repeats instead of counting them
+    static Postings fromSorted(int[] rows) {
+        int size = 0;
+        for (int i = 0; i < rows.length; i++) {
+            if (size == 0 || rows[size - 1] != rows[i]) {
+                rows[size++] = rows[i];
+            }
+        }
+        return new Postings(rows, size);
+    }
+
+    // Method to add a row id while the index is being built, counting repeats as term frequency
+    public void add(int rowId) {
+        // Row ids normally arrive in increasing order, so appending is the common case
+        if (size == 0 || rows[size - 1] < rowId) {
+            ensureCapacity(size + 1);
+            rows[size] = rowId;
+            if (frequencies != null) {
+                frequencies[size] = 1;
+            }
+            size++;
+            return;
+        }
+        if (rows[size - 1] == rowId) {
+            incrementFrequency(size - 1);
+            return;
+        }
+
+        // Fall back to a sorted insert for out of order ids
+        int index = Arrays.binarySearch(rows, 0, size, rowId);
+        if (index >= 0) {
+            incrementFrequency(index);
+            return;
+        }
+        int insertAt = -index - 1;
+        ensureCapacity(size + 1);
+        System.arraycopy(rows, insertAt, rows, insertAt + 1, size - insertAt);
+        rows[insertAt] = rowId;
+        if (frequencies != null) {
+            System.arraycopy(frequencies, insertAt, frequencies, insertAt + 1, size - insertAt);
+            frequencies[insertAt] = 1;
+        }
+        size++;
+    }
+
+    // Helper method to count one more occurrence in the row at a position
+    private void incrementFrequency(int index) {
+        if (frequencies == null) {
+            // First repeat seen: materialise the implicit counts of 1
+            frequencies = new int[rows.length];
+            Arrays.fill(frequencies, 0, size, 1);
+        }
+        frequencies[index]++;
+    }
+
+    // Helper method to grow the backing arrays
+    private void ensureCapacity(int capacity) {
+        if (capacity > rows.length) {
+            rows = Arrays.copyOf(rows, Math.max(capacity, rows.length * 2));
+            if (frequencies != null) {
+                frequencies = Arrays.copyOf(frequencies, rows.length);
+            }
+        }
+    }
+
+    // Method to get the number of row ids
+    public int size() {
+        return size;
+    }
+
+    // Method to check if the list has no row ids
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // Method to get the row id at a position
+    public int get(int index) {
+        return rows[index];
+    }
+
+    // Method to get how often the term occurs in the row at a position
+    public int frequency(int index) {
+        return frequencies == null ? 1 : frequencies[index];
+    }
+
+    // Method to copy the row ids into a new array
+    public int[] toArray() {
+        return Arrays.copyOf(rows, size);
+    }
+
+    // Method to merge two postings lists into their sorted union
+    public static Postings union(Postings a, Postings b) {
+        if (a.size == 0) {
+            return b;
+        }
+        if (b.size == 0) {
+            return a;
+        }
+
+        int[] merged = new int[a.size + b.size];
+        int i = 0, j = 0, n = 0;
+        // Walk both sorted arrays, emitting each row id once
+        while (i < a.size && j < b.size) {
+            int x = a.rows[i];
+            int y = b.rows[j];
+            if (x < y) {
+                merged[n++] = x;
+                i++;
+            } else if (x > y) {
+                merged[n++] = y;
+                j++;
+            } else {
+                merged[n++] = x;
+                i++;
+                j++;
+            }
+        }
+        while (i < a.size) {
+            merged[n++] = a.rows[i++];
+        }
+        while (j < b.size) {
+            merged[n++] = b.rows[j++];
+        }
+        return new Postings(merged, n);
+    }
+
+    // Method to union any number of postings lists at once
+    public static Postings unionAll(List<Postings> lists) {
+        int total = 0;
+        for (Postings list : lists) {
+            total += list.size;
+        }
+        if (total == 0) {
+            return EMPTY;
+        }
+
+        // Concatenate, sort and drop duplicates in place
+        int[] merged = new int[total];
+        int n = 0;
+        for (Postings list : lists) {
+            System.arraycopy(list.rows, 0, merged, n, list.size);
+            n += list.size;
+        }
+        Arrays.sort(merged);
+        int unique = 1;
+        for (int i = 1; i < n; i++) {
+            if (merged[i] != merged[unique - 1]) {
+                merged[unique++] = merged[i];
+            }
+        }
+        return new Postings(merged, unique);
+    }
+
+    // Method to intersect two postings lists, galloping through the longer one
+    public static Postings intersect(Postings a, Postings b) {
+        // Always drive the loop from the shorter list
+        if (a.size > b.size) {
+            Postings swap = a;
+            a = b;
+            b = swap;
+        }
+
+        int[] common = new int[a.size];
+        int n = 0;
+        int j = 0;
+        for (int i = 0; i < a.size && j < b.size; i++) {
+            int target = a.rows[i];
+            // Skip ahead in the longer list with exponential steps, then binary search the gap
+            j = gallop(b.rows, j, b.size, target);
+            if (j < b.size && b.rows[j] == target) {
+                common[n++] = target;
+                j++;
+            }
+        }
+        return n == 0 ? EMPTY : new Postings(common, n);
+    }
+
+    // Method to remove every row id of b from a
+    public static Postings andNot(Postings a, Postings b) {
+        if (a.size == 0 || b.size == 0) {
+            return a;
+        }
+
+        int[] remaining = new int[a.size];
+        int n = 0;
+        int j = 0;
+        for (int i = 0; i < a.size; i++) {
+            int target = a.rows[i];
+            j = gallop(b.rows, j, b.size, target);
+            if (j >= b.size || b.rows[j] != target) {
+                remaining[n++] = target;
+            }
+        }
+        return n == 0 ? EMPTY : new Postings(remaining, n);
+    }
+
+    // Helper method to find the first index >= from whose value is >= target
+    private static int gallop(int[] rows, int from, int size, int target) {
+        if (from >= size || rows[from] >= target) {
+            return from;
+        }
+
+        // Double the step until we pass the target
+        int step = 1;
+        int low = from;
+        int high = from + 1;
+        while (high < size && rows[high] < target) {
+            low = high;
+            step <<= 1;
+            high = from + step;
+        }
+        high = Math.min(high, size);
+
+        // Binary search between the last two probes
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (rows[mid] < target) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Method to write the row ids and term frequencies to an index segment
+    public void writeTo(DataOutputStream out) throws IOException {
+        SegmentIO.writeInts(out, rows, size);
+        out.writeBoolean(frequencies != null);
+        if (frequencies != null) {
+            SegmentIO.writeInts(out, frequencies, size);
+        }
+    }
+
+    // Method to read a postings list written by writeTo
+    public static Postings readFrom(ByteBuffer buffer) {
+        int[] rows = SegmentIO.readInts(buffer);
+        Postings postings = new Postings(rows, rows.length);
+        if (buffer.get() != 0) {
+            postings.frequencies = SegmentIO.readInts(buffer);
+        }
+        return postings;
+    }
+
+    // Method to move a buffer past a postings list written by writeTo without decoding it
+    public static void skip(ByteBuffer buffer) {
+        int rows = buffer.getInt();
+        buffer.position(buffer.position() + rows * Integer.BYTES);
+        if (buffer.get() != 0) {
+            int frequencies = buffer.getInt();
+            buffer.position(buffer.position() + frequencies * Integer.BYTES);
+        }
+    }
+
+    // Method to describe the postings list for logging
+    @Override
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+}
@@ -0,0 +1,124 @@
+// Define the package for the row store implementation
+package com.example.backend.type;
+
+// Import Jackson streaming classes
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+// Import segment serialization helpers
+import com.example.backend.utils.SegmentIO;
+
+// Import required Java IO, NIO and utility classes
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+// Class holding every catalog row already encoded as a UTF-8 JSON object, indexed by row id
+public class RowStore {
+    // Shared, thread-safe factory for the JSON generators
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    // Encoded rows, rows[rowId] is null for ids that were never stored
+    private byte[][] rows = new byte[16][];
+    // Encoded rows of a loaded segment, served from the mapped file instead of rows
+    private ByteBuffer mapped;
+    // Start of each row in mapped, plus the end of the last row; an empty range is a row never stored
+    private IntBuffer mappedOffsets;
+
+    // Method to store the encoded form of a row
+    public void put(int rowId, byte[] json) {
+        if (rowId >= rows.length) {
+            rows = Arrays.copyOf(rows, Math.max(rowId + 1, rows.length * 2));
+        }
+        rows[rowId] = json;
+    }
+
+    // Method to get the encoded form of a row, or null
+    public byte[] get(int rowId) {
+        if (mapped == null) {
+            return rowId < rows.length ? rows[rowId] : null;
+        }
+        if (rowId + 1 >= mappedOffsets.limit()) {
+            return null;
+        }
+        int start = mappedOffsets.get(rowId);
+        int end = mappedOffsets.get(rowId + 1);
+        if (start == end) {
+            return null;
+        }
+        byte[] json = new byte[end - start];
+        mapped.get(start, json);
+        return json;
+    }
+
+    // Method to write the given rows as a JSON array, copying the stored bytes as they are
+    public void writeArray(Postings rowIds, OutputStream out) throws IOException {
+        writeArray(rowIds.toArray(), out);
+    }
+
+    // Method to write rows in the given order as a JSON array
+    public void writeArray(int[] rowIds, OutputStream out) throws IOException {
+        out.write('[');
+        boolean first = true;
+        for (int rowId : rowIds) {
+            byte[] json = get(rowId);
+            if (json == null) {
+                continue;
+            }
+            if (!first) {
+                out.write(',');
+            }
+            out.write(json);
+            first = false;
+        }
+        out.write(']');
+    }
+
+    // Method to write every encoded row to an index segment as one block of bytes and the offsets into it
+    public void writeTo(DataOutputStream out, int rowCount) throws IOException {
+        int[] offsets = new int[rowCount + 1];
+        for (int rowId = 0; rowId < rowCount; rowId++) {
+            byte[] json = get(rowId);
+            offsets[rowId + 1] = offsets[rowId] + (json == null ? 0 : json.length);
+        }
+        SegmentIO.writeInts(out, offsets, offsets.length);
+        out.writeInt(offsets[rowCount]);
+        for (int rowId = 0; rowId < rowCount; rowId++) {
+            byte[] json = get(rowId);
+            if (json != null) {
+                out.write(json);
+            }
+        }
+    }
+
+    // Method to serve the rows of a segment written by writeTo straight from the mapped buffer
+    public void readFrom(ByteBuffer buffer) {
+        mappedOffsets = SegmentIO.sliceInts(buffer);
+        mapped = SegmentIO.sliceBytes(buffer);
+        rows = new byte[0][];
+    }
+
+    // Method to encode a row the same way the search response has always shaped it
+    public static byte[] encode(String id, String document, String[] headers, String[] row) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(bytes)) {
+            generator.writeStartObject();
+            generator.writeStringField("id", id);
+            generator.writeStringField("document", document);
+            // Add all columns to the result
+            for (int i = 0; i < headers.length && i < row.length; i++) {
+                generator.writeStringField(headers[i], row[i]);
+            }
+            generator.writeEndObject();
+        } catch (IOException e) {
+            // Writing to memory cannot fail, so this only wraps the checked signature
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,77 @@
+// Define the package for the sliding window counter implementation
+package com.example.backend.type;
+
+// Class counting events over the last minute, hour and day in two small ring buffers
+public class SlidingWindowCounter {
+    // Number of per-minute buckets, covering one hour
+    private static final int MINUTES = 60;
+    // Number of per-hour buckets, covering one day
+    private static final int HOURS = 24;
+    // Milliseconds per bucket
+    private static final long MINUTE_MILLIS = 60_000L;
+    private static final long HOUR_MILLIS = 60 * MINUTE_MILLIS;
+
+    // Events per minute, indexed by epoch minute modulo MINUTES
+    private final int[] minutes = new int[MINUTES];
+    // Events per hour, indexed by epoch hour modulo HOURS
+    private final int[] hours = new int[HOURS];
+    // Epoch minute and hour of the newest bucket; older buckets are cleared lazily when time moves on
+    private long currentMinute = Long.MIN_VALUE;
+    private long currentHour = Long.MIN_VALUE;
+
+    // Method to count one event at the given time
+    public synchronized void add(long nowMillis) {
+        advance(nowMillis);
+        minutes[Math.floorMod(currentMinute, MINUTES)]++;
+        hours[Math.floorMod(currentHour, HOURS)]++;
+    }
+
+    // Method to count the events in the current minute
+    public synchronized int lastMinute(long nowMillis) {
+        advance(nowMillis);
+        return minutes[Math.floorMod(currentMinute, MINUTES)];
+    }
+
+    // Method to count the events in the last 60 minutes, including the current one
+    public synchronized int lastHour(long nowMillis) {
+        advance(nowMillis);
+        return sum(minutes);
+    }
+
+    // Method to count the events in the last 24 hours, including the current one
+    public synchronized int lastDay(long nowMillis) {
+        advance(nowMillis);
+        return sum(hours);
+    }
+
+    // Helper method to move both rings forward to the current time, zeroing the buckets that expired
+    private void advance(long nowMillis) {
+        long minute = Math.floorDiv(nowMillis, MINUTE_MILLIS);
+        long hour = Math.floorDiv(nowMillis, HOUR_MILLIS);
+        currentMinute = clear(minutes, currentMinute, minute);
+        currentHour = clear(hours, currentHour, hour);
+    }
+
+    // Helper method to zero the buckets after current up to target, returning the new current bucket
+    private static long clear(int[] ring, long current, long target) {
+        if (target <= current) {
+            // Clock went backwards or did not move, keep counting into the current bucket
+            return current;
+        }
+        // After a full lap every bucket has expired, so never clear more than the ring size
+        long steps = current == Long.MIN_VALUE ? ring.length : Math.min(target - current, ring.length);
+        for (long i = 0; i < steps; i++) {
+            ring[Math.floorMod(target - i, ring.length)] = 0;
+        }
+        return target;
+    }
+
+    // Helper method to add up a ring
+    private static int sum(int[] ring) {
+        int total = 0;
+        for (int count : ring) {
+            total += count;
+        }
+        return total;
+    }
+}
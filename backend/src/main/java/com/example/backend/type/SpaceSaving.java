@@ -0,0 +1,164 @@
+// Define the package for the Space-Saving heavy hitters implementation
+package com.example.backend.type;
+
+// Import required Java utility classes
+import java.util.*;
+
+// Class tracking the most frequent items of a stream in a fixed number of counters (Space-Saving algorithm)
+public class SpaceSaving {
+    // Class representing a monitored item
+    private static class Counter {
+        // Item being counted
+        final String item;
+        // Bucket holding every counter with the same count
+        Bucket bucket;
+
+        Counter(String item) {
+            this.item = item;
+        }
+    }
+
+    // Class representing all counters sharing one count, linked in ascending count order
+    private static class Bucket {
+        // Count of every counter in this bucket
+        final long count;
+        // Counters in this bucket, oldest first
+        final LinkedHashSet<Counter> counters = new LinkedHashSet<>();
+        // Neighbouring buckets with the next lower and next higher counts
+        Bucket previous, next;
+
+        Bucket(long count) {
+            this.count = count;
+        }
+    }
+
+    // Maximum number of monitored items
+    private final int capacity;
+    // Map of monitored items to their counters
+    private final Map<String, Counter> counters = new HashMap<>();
+    // Buckets with the lowest and highest counts
+    private Bucket lowest, highest;
+
+    // Constructor
+    public SpaceSaving(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+    }
+
+    // Method to count one occurrence of an item in O(1)
+    public void offer(String item) {
+        offer(item, 1);
+    }
+
+    // Method to count several occurrences of an item at once, used when restoring saved counts
+    public synchronized void offer(String item, long count) {
+        if (count <= 0) {
+            return;
+        }
+        Counter counter = counters.get(item);
+        if (counter == null) {
+            if (counters.size() < capacity) {
+                counter = new Counter(item);
+                counters.put(item, counter);
+                attach(counter, null, count);
+                return;
+            }
+            // Take over the oldest counter with the lowest count, inheriting that count as possible overestimate
+            Counter evicted = lowest.counters.iterator().next();
+            counters.remove(evicted.item);
+            counter = new Counter(item);
+            counters.put(item, counter);
+            Bucket bucket = lowest;
+            bucket.counters.remove(evicted);
+            bucket.counters.add(counter);
+            counter.bucket = bucket;
+        }
+        increment(counter, count);
+    }
+
+    // Method to get the estimated count of an item, 0 if it is not monitored
+    public synchronized long estimate(String item) {
+        Counter counter = counters.get(item);
+        return counter == null ? 0 : counter.bucket.count;
+    }
+
+    // Method to get up to k items with the highest estimated counts, highest first and ties alphabetical
+    public synchronized List<Map.Entry<String, Long>> top(int k) {
+        List<Map.Entry<String, Long>> result = new ArrayList<>(Math.min(k, counters.size()));
+        // Walk down from the highest bucket, which touches only the k items returned
+        for (Bucket bucket = highest; bucket != null && result.size() < k; bucket = bucket.previous) {
+            List<String> items = new ArrayList<>();
+            for (Counter counter : bucket.counters) {
+                items.add(counter.item);
+            }
+            Collections.sort(items);
+            for (int i = 0; i < items.size() && result.size() < k; i++) {
+                result.add(new AbstractMap.SimpleImmutableEntry<>(items.get(i), bucket.count));
+            }
+        }
+        return result;
+    }
+
+    // Method to get the number of monitored items
+    public synchronized int size() {
+        return counters.size();
+    }
+
+    // Helper method to move a counter up by amount, which is O(1) for single increments
+    private void increment(Counter counter, long amount) {
+        Bucket bucket = counter.bucket;
+        long count = bucket.count + amount;
+        bucket.counters.remove(counter);
+        attach(counter, bucket, count);
+        if (bucket.counters.isEmpty()) {
+            unlink(bucket);
+        }
+    }
+
+    // Helper method to put a counter into the bucket for count, searching upwards from after (or the lowest bucket)
+    private void attach(Counter counter, Bucket after, long count) {
+        Bucket next = after == null ? lowest : after.next;
+        // Single increments stop at once; larger jumps skip the buckets with lower counts
+        while (next != null && next.count < count) {
+            after = next;
+            next = next.next;
+        }
+        Bucket target;
+        if (next != null && next.count == count) {
+            target = next;
+        } else {
+            // Link a new bucket between after and next
+            target = new Bucket(count);
+            target.previous = after;
+            target.next = next;
+            if (after == null) {
+                lowest = target;
+            } else {
+                after.next = target;
+            }
+            if (next == null) {
+                highest = target;
+            } else {
+                next.previous = target;
+            }
+        }
+        target.counters.add(counter);
+        counter.bucket = target;
+    }
+
+    // Helper method to remove an empty bucket from the list
+    private void unlink(Bucket bucket) {
+        if (bucket.previous == null) {
+            lowest = bucket.next;
+        } else {
+            bucket.previous.next = bucket.next;
+        }
+        if (bucket.next == null) {
+            highest = bucket.previous;
+        } else {
+            bucket.next.previous = bucket.previous;
+        }
+    }
+}
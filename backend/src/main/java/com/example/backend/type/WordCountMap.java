@@ -0,0 +1,243 @@
+// Define the package for the word count map implementation
+package com.example.backend.type;
+
+// Import segment serialization helpers
+import com.example.backend.utils.SegmentIO;
+
+// Import required Java classes
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.ObjIntConsumer;
+
+// Class counting words in an open addressing table of String keys and int counts
+public class WordCountMap {
+    // Maximum share of occupied slots before the table doubles
+    private static final float LOAD_FACTOR = 0.6f;
+
+    // Keys, null for an empty slot
+    private String[] keys;
+    // Counts parallel to keys
+    private int[] counts;
+    // Cached hashes parallel to keys, so growing and probing do not rehash strings
+    private int[] hashes;
+    // Number of keys
+    private int size = 0;
+    // Size at which the table grows
+    private int threshold;
+
+    // Constructor
+    public WordCountMap() {
+        this(64);
+    }
+
+    // Constructor with an expected number of words
+    public WordCountMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        keys = new String[capacity];
+        counts = new int[capacity];
+        hashes = new int[capacity];
+        threshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    // Method to count one occurrence of the word in chars[start, end), creating its String only when it is new
+    public void increment(char[] chars, int start, int end) {
+        // Same hash as String.hashCode, so lookups by String land in the same slot
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + chars[i];
+        }
+        int mask = keys.length - 1;
+        int slot = spread(hash) & mask;
+        while (keys[slot] != null) {
+            if (hashes[slot] == hash && matches(keys[slot], chars, start, end)) {
+                counts[slot]++;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        insert(slot, new String(chars, start, end - start), hash, 1);
+    }
+
+    // Method to count one occurrence of the ASCII word in bytes[start, end), creating its String only when it is new
+    public void increment(byte[] bytes, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + (bytes[i] & 0xff);
+        }
+        int mask = keys.length - 1;
+        int slot = spread(hash) & mask;
+        while (keys[slot] != null) {
+            if (hashes[slot] == hash && matches(keys[slot], bytes, start, end)) {
+                counts[slot]++;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        insert(slot, new String(bytes, start, end - start, StandardCharsets.ISO_8859_1), hash, 1);
+    }
+
+    // Method to add every count of another map into this one
+    public void addAll(WordCountMap other) {
+        for (int slot = 0; slot < other.keys.length; slot++) {
+            if (other.keys[slot] != null) {
+                add(other.keys[slot], other.counts[slot]);
+            }
+        }
+    }
+
+    // Method to add delta to a word's count, removing the word when its count reaches zero
+    public void add(String word, int delta) {
+        int hash = word.hashCode();
+        int mask = keys.length - 1;
+        int slot = spread(hash) & mask;
+        while (keys[slot] != null) {
+            if (hashes[slot] == hash && keys[slot].equals(word)) {
+                counts[slot] += delta;
+                if (counts[slot] == 0) {
+                    remove(slot);
+                }
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (delta != 0) {
+            insert(slot, word, hash, delta);
+        }
+    }
+
+    // Method to get a word's count, 0 if absent
+    public int get(String word) {
+        int hash = word.hashCode();
+        int mask = keys.length - 1;
+        for (int slot = spread(hash) & mask; keys[slot] != null; slot = (slot + 1) & mask) {
+            if (hashes[slot] == hash && keys[slot].equals(word)) {
+                return counts[slot];
+            }
+        }
+        return 0;
+    }
+
+    // Method to visit every word and its count, in table order
+    public void forEach(ObjIntConsumer<String> action) {
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != null) {
+                action.accept(keys[slot], counts[slot]);
+            }
+        }
+    }
+
+    // Method to get the number of words
+    public int size() {
+        return size;
+    }
+
+    // Method to write every word and its count to a segment
+    public void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(size);
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != null) {
+                SegmentIO.writeString(out, keys[slot]);
+                out.writeInt(counts[slot]);
+            }
+        }
+    }
+
+    // Method to read a map written by writeTo
+    public static WordCountMap readFrom(ByteBuffer buffer) {
+        int size = buffer.getInt();
+        WordCountMap map = new WordCountMap(size);
+        for (int i = 0; i < size; i++) {
+            String word = SegmentIO.readString(buffer);
+            map.add(word, buffer.getInt());
+        }
+        return map;
+    }
+
+    // Helper method to place a new key in an empty slot, growing the table when it gets too full
+    private void insert(int slot, String word, int hash, int count) {
+        keys[slot] = word;
+        hashes[slot] = hash;
+        counts[slot] = count;
+        if (++size > threshold) {
+            grow();
+        }
+    }
+
+    // Helper method to empty a slot and shift later keys of the same probe run back, so no tombstones are needed
+    private void remove(int slot) {
+        int mask = keys.length - 1;
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while (keys[next] != null) {
+            int home = spread(hashes[next]) & mask;
+            // Move the key into the gap unless its home lies cyclically after the gap
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                hashes[gap] = hashes[next];
+                counts[gap] = counts[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[gap] = null;
+        counts[gap] = 0;
+        size--;
+    }
+
+    // Helper method to double the table
+    private void grow() {
+        String[] oldKeys = keys;
+        int[] oldCounts = counts;
+        int[] oldHashes = hashes;
+        keys = new String[oldKeys.length * 2];
+        counts = new int[keys.length];
+        hashes = new int[keys.length];
+        threshold = (int) (keys.length * LOAD_FACTOR);
+
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                int slot = spread(oldHashes[i]) & mask;
+                while (keys[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                hashes[slot] = oldHashes[i];
+                counts[slot] = oldCounts[i];
+            }
+        }
+    }
+
+    // Helper method to compare a key with a char slice
+    private static boolean matches(String key, char[] chars, int start, int end) {
+        if (key.length() != end - start) {
+            return false;
+        }
+        for (int i = 0; i < key.length(); i++) {
+            if (key.charAt(i) != chars[start + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Helper method to compare a key with a slice of single-byte characters
+    private static boolean matches(String key, byte[] bytes, int start, int end) {
+        if (key.length() != end - start) {
+            return false;
+        }
+        for (int i = 0; i < key.length(); i++) {
+            if (key.charAt(i) != (bytes[start + i] & 0xff)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Helper method to mix high hash bits into the low bits used for the slot
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
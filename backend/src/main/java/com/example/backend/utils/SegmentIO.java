@@ -0,0 +1,192 @@
+package com.example.backend.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+public class SegmentIO {
+
+    /**
+     * Writes the body of a segment file.
+     */
+    public interface Body {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    /**
+     * Writes a segment to a temporary file and moves it over the target in one step, so a reader never
+     * maps a partial file.
+     *
+     * @param path the segment file to replace
+     * @param body the writer of the segment contents
+     * @return true if the segment was written and published
+     */
+    public static boolean writeFile(Path path, Body body) {
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(temporary), 1 << 16))) {
+            body.write(out);
+        } catch (IOException e) {
+            System.err.println("Failed to write segment " + path + ": " + e.getMessage());
+            return false;
+        }
+
+        try {
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (IOException e) {
+            System.err.println("Failed to publish segment " + path + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Writes the marker, format version and source file stamps that start every segment.
+     *
+     * @param out     the stream to write to
+     * @param magic   the marker of the segment type
+     * @param version the format version of the segment type
+     * @param sources the stamps of the files the segment was built from, taken before they were read
+     */
+    public static void writeHeader(DataOutputStream out, int magic, int version, List<String> sources)
+            throws IOException {
+        out.writeInt(magic);
+        out.writeInt(version);
+        out.writeInt(sources.size());
+        for (String source : sources) {
+            writeString(out, source);
+        }
+    }
+
+    /**
+     * Maps a segment read-only and checks it was written by {@link #writeHeader} for the same sources.
+     * The mapping stays valid after the file is replaced, so the returned buffer can back a snapshot.
+     *
+     * @param path    the segment file
+     * @param magic   the expected marker
+     * @param version the expected format version
+     * @param sources the current stamps of the source files
+     * @return the buffer positioned after the header, or null if the segment is missing, of another
+     *         format or built from other files
+     */
+    public static ByteBuffer mapCurrent(Path path, int magic, int version, List<String> sources) throws IOException {
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.remaining() < 2 * Integer.BYTES || buffer.getInt() != magic || buffer.getInt() != version) {
+            System.out.println("Segment " + path + " has an unknown format, rebuilding.");
+            return null;
+        }
+
+        // Compare the recorded source files with the current ones before the caller decodes anything else
+        int sourceCount = buffer.getInt();
+        List<String> recorded = new ArrayList<>(sourceCount);
+        for (int i = 0; i < sourceCount; i++) {
+            recorded.add(readString(buffer));
+        }
+        if (!recorded.equals(sources)) {
+            System.out.println("Segment " + path + " is older than the CSV files, rebuilding.");
+            return null;
+        }
+        return buffer;
+    }
+
+    /**
+     * Writes a nullable string as a length-prefixed UTF-8 byte sequence.
+     *
+     * @param out   the stream to write to
+     * @param value the string to write, may be null
+     */
+    public static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads a string written by {@link #writeString} and advances the buffer past it.
+     *
+     * @param buffer the buffer positioned at the string
+     * @return the decoded string, or null if a null was written
+     */
+    public static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes an int array as its length followed by the values.
+     *
+     * @param out    the stream to write to
+     * @param values the array holding the values
+     * @param size   the number of leading values to write
+     */
+    public static void writeInts(DataOutputStream out, int[] values, int size) throws IOException {
+        out.writeInt(size);
+        for (int i = 0; i < size; i++) {
+            out.writeInt(values[i]);
+        }
+    }
+
+    /**
+     * Reads an int array written by {@link #writeInts}.
+     *
+     * @param buffer the buffer positioned at the array
+     * @return the decoded values
+     */
+    public static int[] readInts(ByteBuffer buffer) {
+        int[] values = new int[buffer.getInt()];
+        buffer.asIntBuffer().get(values);
+        buffer.position(buffer.position() + values.length * Integer.BYTES);
+        return values;
+    }
+
+    /**
+     * Views an int array written by {@link #writeInts} in place, without copying it.
+     *
+     * @param buffer the buffer positioned at the array, advanced past it
+     * @return a read-only view of the values backed by the buffer
+     */
+    public static IntBuffer sliceInts(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        IntBuffer values = buffer.slice(buffer.position(), length * Integer.BYTES).asIntBuffer();
+        buffer.position(buffer.position() + length * Integer.BYTES);
+        return values;
+    }
+
+    /**
+     * Views a block of bytes written as its length followed by the bytes, without copying it.
+     *
+     * @param buffer the buffer positioned at the block, advanced past it
+     * @return a read-only view of the bytes backed by the buffer
+     */
+    public static ByteBuffer sliceBytes(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        ByteBuffer bytes = buffer.slice(buffer.position(), length);
+        buffer.position(buffer.position() + length);
+        return bytes;
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.backend.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class SpellCheckTest {
+
+	@Test
+	void knownDistances() {
+		assertEquals(3, SpellCheck.computeEditDistance("kitten", "sitting"));
+		assertEquals(0, SpellCheck.computeEditDistance("", ""));
+		assertEquals(4, SpellCheck.computeEditDistance("", "cold"));
+		assertEquals(2, SpellCheck.computeEditDistance("ca", "ac"));
+		assertEquals(1, SpellCheck.computeEditDistance("ca", "ac", Integer.MAX_VALUE, true));
+		// Optimal string alignment never edits a substring twice, unlike full Damerau-Levenshtein
+		assertEquals(3, SpellCheck.computeEditDistance("ca", "abc", Integer.MAX_VALUE, true));
+	}
+
+	@Test
+	void thresholdCapsTheDistance() {
+		assertEquals(3, SpellCheck.computeEditDistance("kitten", "sitting", 3));
+		assertEquals(3, SpellCheck.computeEditDistance("kitten", "sitting", 2));
+		assertEquals(1, SpellCheck.computeEditDistance("kitten", "sitting", 0));
+		assertEquals(2, SpellCheck.computeEditDistance("a", "abcdef", 1));
+	}
+
+	@Test
+	void bandedMatchesFullMatrixOnRandomPairs() {
+		Random random = new Random(42);
+		for (int i = 0; i < 20_000; i++) {
+			String word1 = randomWord(random);
+			// Mostly near misses of the first word, so small thresholds are exercised on both sides
+			String word2 = random.nextInt(4) == 0 ? randomWord(random) : mutate(word1, random);
+			for (boolean transpositions : new boolean[] { false, true }) {
+				int expected = fullMatrix(word1, word2, transpositions);
+				assertEquals(expected, SpellCheck.computeEditDistance(word1, word2, Integer.MAX_VALUE, transpositions),
+						word1 + " / " + word2);
+				for (int threshold = 0; threshold <= 6; threshold++) {
+					assertEquals(Math.min(expected, threshold + 1),
+							SpellCheck.computeEditDistance(word1, word2, threshold, transpositions),
+							word1 + " / " + word2 + " within " + threshold + (transpositions ? " (OSA)" : ""));
+				}
+			}
+		}
+	}
+
+	// Word of up to 12 letters from a small alphabet, so repeats and swaps are common
+	private static String randomWord(Random random) {
+		char[] chars = new char[random.nextInt(13)];
+		for (int i = 0; i < chars.length; i++) {
+			chars[i] = (char) ('a' + random.nextInt(4));
+		}
+		return new String(chars);
+	}
+
+	// Word a few random insertions, deletions, substitutions or adjacent swaps away from the given one
+	private static String mutate(String word, Random random) {
+		StringBuilder builder = new StringBuilder(word);
+		int edits = random.nextInt(5);
+		for (int i = 0; i < edits; i++) {
+			int position = builder.length() == 0 ? 0 : random.nextInt(builder.length());
+			char letter = (char) ('a' + random.nextInt(4));
+			switch (builder.length() == 0 ? 0 : random.nextInt(4)) {
+				case 0 -> builder.insert(position, letter);
+				case 1 -> builder.deleteCharAt(position);
+				case 2 -> builder.setCharAt(position, letter);
+				default -> {
+					if (position + 1 < builder.length()) {
+						char swapped = builder.charAt(position);
+						builder.setCharAt(position, builder.charAt(position + 1));
+						builder.setCharAt(position + 1, swapped);
+					}
+				}
+			}
+		}
+		return builder.toString();
+	}
+
+	// Reference Levenshtein or optimal-string-alignment distance over the whole matrix
+	private static int fullMatrix(String word1, String word2, boolean transpositions) {
+		int[][] dp = new int[word1.length() + 1][word2.length() + 1];
+		for (int i = 0; i <= word1.length(); i++) {
+			for (int j = 0; j <= word2.length(); j++) {
+				if (i == 0 || j == 0) {
+					dp[i][j] = i + j;
+					continue;
+				}
+				int cost = word1.charAt(i - 1) == word2.charAt(j - 1) ? 0 : 1;
+				dp[i][j] = Math.min(dp[i - 1][j - 1] + cost, Math.min(dp[i - 1][j], dp[i][j - 1]) + 1);
+				if (transpositions && i > 1 && j > 1 && word1.charAt(i - 1) == word2.charAt(j - 2)
+						&& word1.charAt(i - 2) == word2.charAt(j - 1)) {
+					dp[i][j] = Math.min(dp[i][j], dp[i - 2][j - 2] + 1);
+				}
+			}
+		}
+		return dp[word1.length()][word2.length()];
+	}
+
+}
@@ -0,0 +1,102 @@
+package com.example.backend.type;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+class CsvTableTest {
+
+	@Test
+	void quotedCellsSpanLinesAndUnescapeDoubledQuotes() {
+		CsvTable table = parse("id,text\n1,\"first\nsecond\"\n2,\"say \"\"hi\"\"\"\n");
+
+		assertEquals(3, table.rowCount());
+		assertArrayEquals(new String[] { "1", "first\nsecond" }, table.row(1));
+		assertArrayEquals(new String[] { "2", "say \"hi\"" }, table.row(2));
+		assertFalse(table.isEscaped(1, 1));
+		assertTrue(table.isEscaped(2, 1));
+	}
+
+	@Test
+	void lineNumberAndRowTextAfterMultiLineCell() {
+		CsvTable table = parse("id,text\n1,\"a\nb\nc\"\n2,d\n");
+
+		assertEquals(1, table.lineNumber(0));
+		assertEquals(2, table.lineNumber(1));
+		// The row after a three-line cell starts on line 5, not on line 3
+		assertEquals(5, table.lineNumber(2));
+		assertEquals("1,\"a\nb\nc\"", table.rowText(1));
+		assertEquals("2,d", table.rowText(2));
+	}
+
+	@Test
+	void crlfAndLoneCrEndRows() {
+		CsvTable crlf = parse("a,b\r\nc,d\r\n");
+		assertEquals(2, crlf.rowCount());
+		assertArrayEquals(new String[] { "c", "d" }, crlf.row(1));
+		assertEquals("a,b", crlf.rowText(0));
+		assertEquals(2, crlf.lineNumber(1));
+
+		CsvTable loneCr = parse("a,b\rc,d\r");
+		assertEquals(2, loneCr.rowCount());
+		assertArrayEquals(new String[] { "c", "d" }, loneCr.row(1));
+		assertEquals("c,d", loneCr.rowText(1));
+		assertEquals(2, loneCr.lineNumber(1));
+	}
+
+	@Test
+	void crlfInsideQuotedCellBecomesNewline() {
+		CsvTable table = parse("\"x\r\ny\",z\r\nnext,row\r\n");
+
+		assertEquals(2, table.rowCount());
+		assertEquals("x\ny", table.field(0, 0));
+		assertTrue(table.isEscaped(0, 0));
+		assertEquals(3, table.lineNumber(1));
+	}
+
+	@Test
+	void textAfterClosingQuoteStaysInField() {
+		CsvTable table = parse("\"ab\"cd,e\n");
+
+		assertEquals(1, table.rowCount());
+		assertArrayEquals(new String[] { "ab\"cd", "e" }, table.row(0));
+	}
+
+	@Test
+	void trailingDelimiterOpensEmptyField() {
+		CsvTable atEof = parse("a,b,");
+		assertEquals(1, atEof.rowCount());
+		assertEquals(3, atEof.fieldCount(0));
+		assertEquals("", atEof.field(0, 2));
+		assertEquals(0, atEof.fieldLength(0, 2));
+
+		CsvTable beforeNewline = parse("a,b,\nc,d,\n");
+		assertEquals(2, beforeNewline.rowCount());
+		assertArrayEquals(new String[] { "c", "d", "" }, beforeNewline.row(1));
+	}
+
+	@Test
+	void emptyFileHasNoRows() {
+		assertEquals(0, parse("").rowCount());
+	}
+
+	@Test
+	void lastRowWithoutNewline() {
+		CsvTable table = parse("a,b\nc,d");
+
+		assertEquals(2, table.rowCount());
+		assertArrayEquals(new String[] { "c", "d" }, table.row(1));
+		assertEquals("c,d", table.rowText(1));
+		assertEquals(2, table.lineNumber(1));
+	}
+
+	private static CsvTable parse(String text) {
+		return CsvTable.parse(ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8)));
+	}
+}
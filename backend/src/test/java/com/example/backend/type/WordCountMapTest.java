@@ -0,0 +1,119 @@
+package com.example.backend.type;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class WordCountMapTest {
+
+	@Test
+	void matchesHashMapUnderRandomOperations() {
+		Random random = new Random(7);
+		List<String> words = words(random);
+		// Start small so the table grows several times and probe runs get long
+		WordCountMap map = new WordCountMap(1);
+		Map<String, Integer> expected = new HashMap<>();
+
+		for (int step = 0; step < 200_000; step++) {
+			String word = words.get(random.nextInt(words.size()));
+			int current = expected.getOrDefault(word, 0);
+			int operation = random.nextInt(10);
+			if (operation < 3) {
+				// Count the word from the middle of a larger buffer
+				char[] chars = ("#" + word + "#").toCharArray();
+				map.increment(chars, 1, chars.length - 1);
+				expected.merge(word, 1, Integer::sum);
+			} else if (operation < 5) {
+				byte[] bytes = ("##" + word).getBytes(StandardCharsets.ISO_8859_1);
+				map.increment(bytes, 2, bytes.length);
+				expected.merge(word, 1, Integer::sum);
+			} else if (operation < 7) {
+				int delta = 1 + random.nextInt(5);
+				map.add(word, delta);
+				expected.merge(word, delta, Integer::sum);
+			} else if (current > 0) {
+				// Remove the word outright or lower its count, which shifts later keys back on removal
+				int delta = operation == 9 ? current : 1 + random.nextInt(current);
+				map.add(word, -delta);
+				if (delta == current) {
+					expected.remove(word);
+				} else {
+					expected.put(word, current - delta);
+				}
+			}
+
+			assertEquals(expected.getOrDefault(word, 0), map.get(word), word + " at step " + step);
+			if (step % 1_000 == 0) {
+				assertSameContents(expected, map);
+			}
+		}
+		assertSameContents(expected, map);
+	}
+
+	@Test
+	void addAllMergesAndRemovesZeroCounts() {
+		Random random = new Random(11);
+		List<String> words = words(random);
+		WordCountMap first = new WordCountMap();
+		WordCountMap second = new WordCountMap();
+		Map<String, Integer> expected = new HashMap<>();
+		for (int i = 0; i < 5_000; i++) {
+			String word = words.get(random.nextInt(words.size()));
+			first.add(word, 1);
+			expected.merge(word, 1, Integer::sum);
+		}
+		for (String word : words) {
+			// Cancel some words exactly, add to others
+			int delta = random.nextBoolean() ? -first.get(word) : random.nextInt(3);
+			second.add(word, delta);
+			expected.merge(word, delta, Integer::sum);
+		}
+		expected.values().removeIf(count -> count == 0);
+
+		first.addAll(second);
+		assertSameContents(expected, first);
+	}
+
+	// Words from a small pool, including groups that share a String hash code
+	private static List<String> words(Random random) {
+		List<String> words = new ArrayList<>();
+		// "Aa" and "BB" have the same hash code, so every string of these blocks with the same length collides
+		for (int mask = 0; mask < 16; mask++) {
+			StringBuilder builder = new StringBuilder();
+			for (int bit = 0; bit < 4; bit++) {
+				builder.append((mask & 1 << bit) == 0 ? "Aa" : "BB");
+			}
+			words.add(builder.toString());
+		}
+		while (words.size() < 300) {
+			char[] chars = new char[1 + random.nextInt(6)];
+			for (int i = 0; i < chars.length; i++) {
+				chars[i] = (char) ('a' + random.nextInt(6));
+			}
+			String word = new String(chars);
+			if (!words.contains(word)) {
+				words.add(word);
+			}
+		}
+		return words;
+	}
+
+	// Checks size, every lookup and a full iteration against the reference map
+	private static void assertSameContents(Map<String, Integer> expected, WordCountMap map) {
+		assertEquals(expected.size(), map.size());
+		for (Map.Entry<String, Integer> entry : expected.entrySet()) {
+			assertEquals(entry.getValue().intValue(), map.get(entry.getKey()), entry.getKey());
+		}
+		Map<String, Integer> visited = new HashMap<>();
+		map.forEach((word, count) -> assertEquals(null, visited.put(word, count), "duplicate " + word));
+		assertEquals(expected, visited);
+	}
+
+}